@@ -5,39 +5,91 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
-import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * MySQL connection pool read from {@code /etc/psc/settings.json}. Replaced by an in-memory
+ * database under the {@code embedded-db} profile. The pool's metrics are exported by the actuator
+ * under the {@value #POOL_NAME} pool name.
+ */
 @Configuration
+@Profile("!embedded-db")
 public class DataSourceConfiguration {
 
+  static final String POOL_NAME = "openpsc";
+  private static final Map<String, String> DEFAULT_DATA_SOURCE_PROPERTIES =
+      Map.of("cachePrepStmts", "true", "prepStmtCacheSize", "250", "prepStmtCacheSqlLimit",
+          "2048", "useServerPrepStmts", "true", "rewriteBatchedStatements", "true",
+          "cacheResultSetMetadata", "true", "cacheServerConfiguration", "true",
+          "useLocalSessionState", "true", "elideSetAutoCommits", "true", "useCursorFetch", "true");
+
   private static final String SEPARATOR = System.getProperty("file.separator");
   private static final String PATH_TO_FILE =
       SEPARATOR + "etc" + SEPARATOR + "psc" + SEPARATOR + "settings.json";
 
   @Bean
-  public DataSource customDataSource() throws IOException {
+  public DataSource customDataSource(ObjectProvider<MeterRegistry> meterRegistry)
+      throws IOException {
     checkFilePermissions();
     final var gson = new Gson();
     final var reader = Files.newBufferedReader(Paths.get(PATH_TO_FILE));
     final var json = gson.fromJson(reader, JsonObject.class);
     final var databaseConfig = json.get("databaseConfiguration").getAsJsonObject();
-    final var url = databaseConfig.get("url").getAsString();
-    final var username = databaseConfig.get("username").getAsString();
-    final var password = databaseConfig.get("password").getAsString();
-    final var dsBuilder = DataSourceBuilder.create();
-    dsBuilder.driverClassName("com.mysql.cj.jdbc.Driver");
-    dsBuilder.url(url);
-    dsBuilder.username(username);
-    dsBuilder.password(password);
-    return dsBuilder.build();
+    final var config = createPoolConfiguration(databaseConfig);
+    meterRegistry.ifAvailable(
+        registry -> config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    return new HikariDataSource(config);
+  }
+
+  /**
+   * Builds the connection pool configuration from the {@code databaseConfiguration} object. The
+   * optional {@code pool} object sets the pool size and timeouts, and the optional
+   * {@code dataSourceProperties} object overrides the MySQL driver properties, which by default
+   * enable the prepared statement cache and batched statement rewriting.
+   */
+  static HikariConfig createPoolConfiguration(JsonObject databaseConfig) {
+    final var config = new HikariConfig();
+    config.setPoolName(POOL_NAME);
+    config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+    config.setJdbcUrl(databaseConfig.get("url").getAsString());
+    config.setUsername(databaseConfig.get("username").getAsString());
+    config.setPassword(databaseConfig.get("password").getAsString());
+
+    final var pool = databaseConfig.has("pool") ? databaseConfig.getAsJsonObject("pool")
+        : new JsonObject();
+    if (pool.has("maximumPoolSize"))
+      config.setMaximumPoolSize(pool.get("maximumPoolSize").getAsInt());
+    if (pool.has("minimumIdle"))
+      config.setMinimumIdle(pool.get("minimumIdle").getAsInt());
+    if (pool.has("connectionTimeoutMs"))
+      config.setConnectionTimeout(pool.get("connectionTimeoutMs").getAsLong());
+    if (pool.has("idleTimeoutMs"))
+      config.setIdleTimeout(pool.get("idleTimeoutMs").getAsLong());
+    if (pool.has("maxLifetimeMs"))
+      config.setMaxLifetime(pool.get("maxLifetimeMs").getAsLong());
+    if (pool.has("leakDetectionThresholdMs"))
+      config.setLeakDetectionThreshold(pool.get("leakDetectionThresholdMs").getAsLong());
+
+    DEFAULT_DATA_SOURCE_PROPERTIES.forEach(config::addDataSourceProperty);
+    if (databaseConfig.has("dataSourceProperties"))
+      for (final var property : databaseConfig.getAsJsonObject("dataSourceProperties").entrySet())
+        config.addDataSourceProperty(property.getKey(), property.getValue().getAsString());
+    return config;
   }
 
   private File checkFilePermissions() throws IOException {
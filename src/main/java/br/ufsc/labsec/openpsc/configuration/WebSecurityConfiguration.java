@@ -66,6 +66,12 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
         .hasAnyAuthority(Authority.USER.toString());
     http.authorizeRequests().antMatchers(HttpMethod.POST, "/key/**/sign")
         .hasAnyAuthority(Authority.USER.toString());
+    http.authorizeRequests().antMatchers(HttpMethod.POST, "/key/**/sign/batch")
+        .hasAnyAuthority(Authority.USER.toString());
+    http.authorizeRequests().antMatchers(HttpMethod.POST, "/key/**/sign/digest")
+        .hasAnyAuthority(Authority.USER.toString());
+    http.authorizeRequests().antMatchers(HttpMethod.POST, "/key/**/sign/stream")
+        .hasAnyAuthority(Authority.USER.toString());
     http.authorizeRequests().antMatchers(HttpMethod.DELETE, "/key/**")
         .hasAnyAuthority(Authority.USER.toString());
     http.authorizeRequests().antMatchers(HttpMethod.GET, "/key/**")
@@ -78,8 +84,15 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
         .hasAnyAuthority(Authority.ADMINISTRATOR.toString());
     http.authorizeRequests().antMatchers(HttpMethod.POST, "/system/refresh-key")
         .hasAnyAuthority(Authority.ADMINISTRATOR.toString());
+    http.authorizeRequests().antMatchers(HttpMethod.POST, "/system/public-key-backfill")
+        .hasAnyAuthority(Authority.ADMINISTRATOR.toString());
     http.authorizeRequests().antMatchers(HttpMethod.POST, "/system/admin-user").permitAll();
 
+    // /actuator
+    http.authorizeRequests().antMatchers(HttpMethod.GET, "/actuator/health").permitAll();
+    http.authorizeRequests().antMatchers(HttpMethod.GET, "/actuator/prometheus")
+        .hasAnyAuthority(Authority.ADMINISTRATOR.toString());
+
     // filters
     http.addFilter(authenticationFilter);
     http.addFilterBefore(new AppUserAuthorizationFilter(jwtManager),
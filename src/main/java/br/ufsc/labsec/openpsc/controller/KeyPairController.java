@@ -1,8 +1,16 @@
 package br.ufsc.labsec.openpsc.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,16 +22,28 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import br.ufsc.labsec.openpsc.data.request.DigestSignatureRequest;
 import br.ufsc.labsec.openpsc.data.request.KeyPairGenerationRequest;
+import br.ufsc.labsec.openpsc.data.request.SignatureBatchRequest;
 import br.ufsc.labsec.openpsc.data.request.SignatureRequest;
 import br.ufsc.labsec.openpsc.data.request.SignatureVerificationRequest;
 import br.ufsc.labsec.openpsc.data.response.ErrorMessageResponse;
+import br.ufsc.labsec.openpsc.data.response.KeyGenerationJobResponse;
 import br.ufsc.labsec.openpsc.data.response.KeyResponse;
+import br.ufsc.labsec.openpsc.data.response.SignatureBatchItemResponse;
+import br.ufsc.labsec.openpsc.data.response.SignatureBatchResponse;
 import br.ufsc.labsec.openpsc.data.response.SignatureResponse;
 import br.ufsc.labsec.openpsc.data.response.SignatureVerificationResponse;
+import br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary;
+import br.ufsc.labsec.openpsc.service.KeyGenerationJobService;
+import br.ufsc.labsec.openpsc.service.KeyGenerationJobService.KeyGenerationJob;
 import br.ufsc.labsec.openpsc.service.KeyPairService;
 import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException;
+import br.ufsc.labsec.valueobject.crypto.keys.KeyManagerException;
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -34,21 +54,38 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
 @RestController
 @RequestMapping(path = "key")
+@Timed(value = KeyPairController.REQUEST_TIMER, histogram = true)
+@Timed(value = KeyPairController.ACTIVE_REQUEST_TIMER, longTask = true)
 public class KeyPairController {
 
+  public static final String REQUEST_TIMER = "openpsc.key.requests";
+  public static final String ACTIVE_REQUEST_TIMER = "openpsc.key.requests.active";
+
+  public static final long MAX_JOB_WAIT_MS = 30_000;
+
   private final KeyPairService keyPairService;
+  private final KeyGenerationJobService keyGenerationJobService;
+  private final ObjectMapper objectMapper;
 
   /**
    * @param keyPairService
+   * @param keyGenerationJobService
+   * @param objectMapper
    */
   @Autowired
-  public KeyPairController(KeyPairService keyPairService) {
+  public KeyPairController(KeyPairService keyPairService,
+      KeyGenerationJobService keyGenerationJobService, ObjectMapper objectMapper) {
     super();
     this.keyPairService = keyPairService;
+    this.keyGenerationJobService = keyGenerationJobService;
+    this.objectMapper = objectMapper;
   }
 
   @Operation(responses = {
       @ApiResponse(responseCode = "200",
+          headers = @Header(name = "Link",
+              description = "URI to the next page of keys, when the listing is paged",
+              schema = @Schema(type = "string")),
           content = @Content(
               array = @ArraySchema(schema = @Schema(implementation = KeyResponse.class)),
               mediaType = MediaType.APPLICATION_JSON_VALUE)),
@@ -61,35 +98,52 @@ public class KeyPairController {
   @SecurityRequirement(name = "user")
   @GetMapping
   public ResponseEntity<Object> getKeys(
-      @RequestParam(required = false, name = "keyName") String keyName) {
+      @RequestParam(required = false, name = "keyName") String keyName,
+      @RequestParam(required = false, name = "continuationToken") String continuationToken,
+      @RequestParam(required = false, name = "pageSize") Integer pageSize) {
     try {
       final var username = SecurityContextHolder.getContext().getAuthentication().getName();
       final var body = new ArrayList<KeyResponse>();
+      String nextPageLink = null;
       if (keyName != null && !keyName.isBlank()) {
         final var keyPair = keyPairService.getKeyPairByKeyName(username, keyName);
         final var keyAlgorithm = keyPair.getKeyAlgorithm();
-        final var keyParameter = keyPair.getKeyParameter();
         final var keyPairUniqueIdentifier = keyPair.getUniqueIdentifier();
         final var keyNameResponse = keyPair.getKeyName();
-        final var publicKey =
-            keyPairService.getPublicKey(keyPair.getPublicKey(), keyAlgorithm, keyParameter);
+        final var publicKey = keyPairService.getEncodedPublicKey(keyPair);
         final var keyResponse =
             new KeyResponse(keyPairUniqueIdentifier, keyAlgorithm, publicKey, keyNameResponse);
         body.add(keyResponse);
       } else {
-        final var keyPairs = keyPairService.getKeyPairs(username);
+        // without paging parameters every key is listed, so existing clients see no change
+        final List<KeyPairSummary> keyPairs;
+        if (pageSize == null && continuationToken == null)
+          keyPairs = keyPairService.getKeyPairSummaries(username);
+        else {
+          final var effectivePageSize =
+              pageSize != null ? pageSize : KeyPairService.DEFAULT_PAGE_SIZE;
+          final var keyPairPage =
+              keyPairService.getKeyPairPage(username, continuationToken, effectivePageSize);
+          keyPairs = keyPairPage.getKeyPairs();
+          final var nextContinuationToken = keyPairPage.getNextContinuationToken();
+          if (nextContinuationToken != null)
+            nextPageLink = String.format("<%s>; rel=\"next\"",
+                ServletUriComponentsBuilder.fromCurrentRequestUri()
+                    .queryParam("pageSize", effectivePageSize)
+                    .queryParam("continuationToken", nextContinuationToken).toUriString());
+        }
         for (final var keyPair : keyPairs) {
           final var keyAlgorithm = keyPair.getKeyAlgorithm();
-          final var keyParameter = keyPair.getKeyParameter();
           final var keyPairUniqueIdentifier = keyPair.getUniqueIdentifier();
           final var keyNameResponse = keyPair.getKeyName();
-          final var publicKey =
-              keyPairService.getPublicKey(keyPair.getPublicKey(), keyAlgorithm, keyParameter);
+          final var publicKey = keyPairService.getEncodedPublicKey(keyPair);
           final var keyResponse =
               new KeyResponse(keyPairUniqueIdentifier, keyAlgorithm, publicKey, keyNameResponse);
           body.add(keyResponse);
         }
       }
+      if (nextPageLink != null)
+        return ResponseEntity.ok().header(HttpHeaders.LINK, nextPageLink).body(body);
       return ResponseEntity.ok().body(body);
     } catch (KeyPairServiceException e) {
       final var body = new ErrorMessageResponse(e.getMessage());
@@ -100,23 +154,68 @@ public class KeyPairController {
     }
   }
 
+  @Operation(responses = {
+      @ApiResponse(responseCode = "200",
+          content = @Content(
+              array = @ArraySchema(schema = @Schema(implementation = KeyResponse.class)),
+              mediaType = MediaType.APPLICATION_JSON_VALUE))})
+  @SecurityRequirement(name = "user")
+  @GetMapping(params = "export=true")
+  public ResponseEntity<StreamingResponseBody> exportKeys() {
+    final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+    final StreamingResponseBody body = outputStream -> {
+      // closing the generator must not complete the array, so a failed export ends in
+      // malformed JSON instead of a well-formed but truncated listing
+      try (final var generator = objectMapper.getFactory().createGenerator(outputStream)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+        generator.writeStartArray();
+        keyPairService.exportKeyPairs(username,
+            (keyPair, publicKey) -> generator.writeObject(new KeyResponse(
+                keyPair.getUniqueIdentifier(), keyPair.getKeyAlgorithm(), publicKey,
+                keyPair.getKeyName())));
+        generator.writeEndArray();
+      } catch (KeyPairServiceException | KeyManagerException e) {
+        throw new IOException(e);
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
   @Operation(responses = {
       @ApiResponse(responseCode = "201",
           headers = @Header(name = "Location", description = "URI to the key created",
               schema = @Schema(type = "string"))),
+      @ApiResponse(responseCode = "202",
+          headers = @Header(name = "Location", description = "URI to the key generation job",
+              schema = @Schema(type = "string")),
+          content = @Content(schema = @Schema(implementation = KeyGenerationJobResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
       @ApiResponse(responseCode = "400",
           content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
               mediaType = MediaType.APPLICATION_JSON_VALUE)),
       @ApiResponse(responseCode = "500",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "503",
           content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
               mediaType = MediaType.APPLICATION_JSON_VALUE))})
   @SecurityRequirement(name = "user")
   @PostMapping
-  public ResponseEntity<Object> createKeyPair(@RequestBody KeyPairGenerationRequest request) {
+  public ResponseEntity<Object> createKeyPair(@RequestBody KeyPairGenerationRequest request,
+      @RequestParam(name = "async", defaultValue = "false") boolean async) {
     try {
       final var username = SecurityContextHolder.getContext().getAuthentication().getName();
       final var encodingKey =
           (String) SecurityContextHolder.getContext().getAuthentication().getCredentials();
+      if (async) {
+        final var job = keyGenerationJobService.submit(username, encodingKey,
+            request.getKeyAlgorithm(), request.getKeyParameter(), request.getKeyName());
+        final var pathToJob = String.format("/key/jobs/%s", job.getIdentifier());
+        final var uriString =
+            ServletUriComponentsBuilder.fromCurrentContextPath().path(pathToJob).toUriString();
+        return ResponseEntity.accepted().location(URI.create(uriString))
+            .body(toJobResponse(job));
+      }
       final var keyPair = keyPairService.createKeyPair(username, encodingKey,
           request.getKeyAlgorithm(), request.getKeyParameter(), request.getKeyName());
       final var pathToCreatedKey = String.format("/key/%s", keyPair.getUniqueIdentifier());
@@ -127,12 +226,60 @@ public class KeyPairController {
     } catch (KeyPairServiceException e) {
       final var body = new ErrorMessageResponse(e.getMessage());
       return ResponseEntity.badRequest().body(body);
+    } catch (RejectedExecutionException e) {
+      final var body = new ErrorMessageResponse(KeyGenerationJobService.QUEUE_FULL);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
     } catch (Throwable e) {
       final var body = new ErrorMessageResponse(e.getMessage());
       return ResponseEntity.internalServerError().body(body);
     }
   }
 
+  @Operation(responses = {
+      @ApiResponse(responseCode = "200",
+          content = @Content(schema = @Schema(implementation = KeyGenerationJobResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "400",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "500",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE))})
+  @SecurityRequirement(name = "user")
+  @GetMapping(path = "jobs/{jobIdentifier}")
+  public DeferredResult<ResponseEntity<Object>> getKeyGenerationJob(
+      @PathVariable("jobIdentifier") String jobIdentifier,
+      @RequestParam(name = "waitMs", defaultValue = "0") long waitMs) {
+    final var result = new DeferredResult<ResponseEntity<Object>>();
+    try {
+      final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+      final var job = keyGenerationJobService.getJob(username, jobIdentifier);
+      if (waitMs <= 0 || job.getResult().isDone()) {
+        result.setResult(ResponseEntity.ok().body(toJobResponse(job)));
+        return result;
+      }
+      final var waitingResult = new DeferredResult<ResponseEntity<Object>>(
+          Math.min(waitMs, MAX_JOB_WAIT_MS), () -> ResponseEntity.ok().body(toJobResponse(job)));
+      job.getResult().whenComplete((keyPair, e) -> waitingResult
+          .setResult(ResponseEntity.ok().body(toJobResponse(job))));
+      return waitingResult;
+    } catch (KeyPairServiceException e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      result.setResult(ResponseEntity.badRequest().body(body));
+    } catch (Throwable e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      result.setResult(ResponseEntity.internalServerError().body(body));
+    }
+    return result;
+  }
+
+  private KeyGenerationJobResponse toJobResponse(KeyGenerationJob job) {
+    final var keyPair = job.getKeyPair();
+    final var keyPairUniqueIdentifier = keyPair != null ? keyPair.getUniqueIdentifier() : null;
+    return new KeyGenerationJobResponse(job.getIdentifier(), job.getStatus().name(),
+        keyPairUniqueIdentifier, job.getError());
+  }
+
   @Operation(responses = {
       @ApiResponse(responseCode = "200",
           content = @Content(schema = @Schema(implementation = SignatureResponse.class),
@@ -151,14 +298,120 @@ public class KeyPairController {
       final var username = SecurityContextHolder.getContext().getAuthentication().getName();
       final var accessKey =
           (String) SecurityContextHolder.getContext().getAuthentication().getCredentials();
-      final var signature = keyPairService.sign(username, accessKey, request.getBase64EncodedData(),
-          uniqueIdentifier, request.getHashingAlgorithm());
+      final var signatureResult = keyPairService.signWithPublicKey(username, accessKey,
+          request.getBase64EncodedData(), uniqueIdentifier, request.getHashingAlgorithm());
+
+      final var body = new SignatureResponse(signatureResult.getBase64EncodedSignature(),
+          signatureResult.getKeyPairUniqueIdentifier(),
+          signatureResult.getBase64EncodedPublicKey());
+      return ResponseEntity.ok().body(body);
+    } catch (KeyPairServiceException e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      return ResponseEntity.badRequest().body(body);
+    } catch (Throwable e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      return ResponseEntity.internalServerError().body(body);
+    }
+  }
+
+  @Operation(responses = {
+      @ApiResponse(responseCode = "200",
+          content = @Content(schema = @Schema(implementation = SignatureResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "400",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "500",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE))})
+  @SecurityRequirement(name = "user")
+  @PostMapping(path = "{keyUniqueIdentifier}/sign/digest")
+  public ResponseEntity<Object> signDigest(@RequestBody DigestSignatureRequest request,
+      @PathVariable("keyUniqueIdentifier") String uniqueIdentifier) {
+    try {
+      final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+      final var accessKey =
+          (String) SecurityContextHolder.getContext().getAuthentication().getCredentials();
+      final var signatureResult = keyPairService.signDigest(username, accessKey,
+          request.getBase64EncodedDigest(), uniqueIdentifier, request.getDigestAlgorithmOid());
+
+      final var body = new SignatureResponse(signatureResult.getBase64EncodedSignature(),
+          signatureResult.getKeyPairUniqueIdentifier(),
+          signatureResult.getBase64EncodedPublicKey());
+      return ResponseEntity.ok().body(body);
+    } catch (KeyPairServiceException e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      return ResponseEntity.badRequest().body(body);
+    } catch (Throwable e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      return ResponseEntity.internalServerError().body(body);
+    }
+  }
+
+  @Operation(responses = {
+      @ApiResponse(responseCode = "200",
+          content = @Content(schema = @Schema(implementation = SignatureResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "400",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "500",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE))})
+  @SecurityRequirement(name = "user")
+  @PostMapping(path = "{keyUniqueIdentifier}/sign/stream",
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<Object> signStream(InputStream data,
+      @RequestParam(name = "hashingAlgorithm") String hashingAlgorithm,
+      @PathVariable("keyUniqueIdentifier") String uniqueIdentifier) {
+    try {
+      final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+      final var accessKey =
+          (String) SecurityContextHolder.getContext().getAuthentication().getCredentials();
+      final var signatureResult = keyPairService.signStream(username, accessKey, data,
+          uniqueIdentifier, hashingAlgorithm);
+
+      final var body = new SignatureResponse(signatureResult.getBase64EncodedSignature(),
+          signatureResult.getKeyPairUniqueIdentifier(),
+          signatureResult.getBase64EncodedPublicKey());
+      return ResponseEntity.ok().body(body);
+    } catch (KeyPairServiceException e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      return ResponseEntity.badRequest().body(body);
+    } catch (Throwable e) {
+      final var body = new ErrorMessageResponse(e.getMessage());
+      return ResponseEntity.internalServerError().body(body);
+    }
+  }
+
+  @Operation(responses = {
+      @ApiResponse(responseCode = "200",
+          content = @Content(schema = @Schema(implementation = SignatureBatchResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "400",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "500",
+          content = @Content(schema = @Schema(implementation = ErrorMessageResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE))})
+  @SecurityRequirement(name = "user")
+  @PostMapping(path = "{keyUniqueIdentifier}/sign/batch")
+  public ResponseEntity<Object> signBatch(@RequestBody SignatureBatchRequest request,
+      @PathVariable("keyUniqueIdentifier") String uniqueIdentifier) {
+    try {
+      final var username = SecurityContextHolder.getContext().getAuthentication().getName();
+      final var accessKey =
+          (String) SecurityContextHolder.getContext().getAuthentication().getCredentials();
+      final var batchSignature = keyPairService.signBatch(username, accessKey,
+          request.getBase64EncodedData(), uniqueIdentifier, request.getHashingAlgorithm());
 
-      final var keyPair = keyPairService.getKeyPair(username, uniqueIdentifier);
-      final var publicKey = keyPairService.getPublicKey(keyPair.getPublicKey(),
-          keyPair.getKeyAlgorithm(), keyPair.getKeyParameter());
+      final var publicKey = keyPairService.getEncodedPublicKey(batchSignature.getKeyPair());
+      final var signatures = new ArrayList<SignatureBatchItemResponse>();
+      for (final var signedItem : batchSignature.getSignatures())
+        signatures.add(new SignatureBatchItemResponse(signedItem.getBase64EncodedSignature(),
+            signedItem.getError()));
 
-      final var body = new SignatureResponse(signature, uniqueIdentifier, publicKey);
+      final var body = new SignatureBatchResponse(uniqueIdentifier, publicKey, signatures);
       return ResponseEntity.ok().body(body);
     } catch (KeyPairServiceException e) {
       final var body = new ErrorMessageResponse(e.getMessage());
@@ -215,11 +468,9 @@ public class KeyPairController {
       final var username = SecurityContextHolder.getContext().getAuthentication().getName();
       final var keyPair = keyPairService.getKeyPair(username, keyUniqueIdentifier);
       final var keyAlgorithm = keyPair.getKeyAlgorithm();
-      final var keyParameter = keyPair.getKeyParameter();
       final var keyPairUniqueIdentifier = keyPair.getUniqueIdentifier();
       final var keyName = keyPair.getKeyName();
-      final var publicKey =
-          keyPairService.getPublicKey(keyPair.getPublicKey(), keyAlgorithm, keyParameter);
+      final var publicKey = keyPairService.getEncodedPublicKey(keyPair);
       final var body = new KeyResponse(keyPairUniqueIdentifier, keyAlgorithm, publicKey, keyName);
       return ResponseEntity.ok().body(body);
     } catch (KeyPairServiceException e) {
@@ -0,0 +1,35 @@
+package br.ufsc.labsec.openpsc.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import br.ufsc.labsec.openpsc.service.StageTimings;
+
+/**
+ * Marks the start of response serialization for {@link StageTimings}.
+ */
+@ControllerAdvice
+public class StageTimingResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+  public static final String SERIALIZATION_STAGE = "serialization";
+
+  @Override
+  public boolean supports(MethodParameter returnType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType,
+      MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType,
+      ServerHttpRequest request, ServerHttpResponse response) {
+    StageTimings.start(SERIALIZATION_STAGE);
+    return body;
+  }
+
+}
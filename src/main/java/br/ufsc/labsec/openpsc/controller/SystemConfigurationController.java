@@ -14,6 +14,7 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import br.ufsc.labsec.openpsc.data.request.KNetConfigurationRequest;
 import br.ufsc.labsec.openpsc.data.request.RegisterUserRequest;
 import br.ufsc.labsec.openpsc.data.response.ErrorMessageResponse;
+import br.ufsc.labsec.openpsc.data.response.NoticeResponse;
 import br.ufsc.labsec.openpsc.data.response.UserResponse;
 import br.ufsc.labsec.openpsc.service.SystemConfigurationService;
 import br.ufsc.labsec.openpsc.service.exception.SystemServiceException;
@@ -114,6 +115,23 @@ public class SystemConfigurationController {
     }
   }
 
+  @Operation(responses = {
+      @ApiResponse(responseCode = "200",
+          content = @Content(schema = @Schema(implementation = NoticeResponse.class),
+              mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = "500")})
+  @SecurityRequirement(name = "administrator")
+  @PostMapping("public-key-backfill")
+  public ResponseEntity<Object> backfillEncodedPublicKeys() {
+    try {
+      final var updated = systemConfigurationService.backfillEncodedPublicKeys();
+      final var body = new NoticeResponse(String.format("%d key pairs updated.", updated));
+      return ResponseEntity.ok().body(body);
+    } catch (Throwable e) {
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
   @Operation(responses = {@ApiResponse(responseCode = "200"), @ApiResponse(responseCode = "500")})
   @SecurityRequirement(name = "administrator")
   @PostMapping("refresh-key")
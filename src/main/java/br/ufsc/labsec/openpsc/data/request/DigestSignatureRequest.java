@@ -0,0 +1,15 @@
+package br.ufsc.labsec.openpsc.data.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DigestSignatureRequest {
+
+  private String digestAlgorithmOid;
+  private String base64EncodedDigest;
+
+}
@@ -0,0 +1,17 @@
+package br.ufsc.labsec.openpsc.data.request;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignatureBatchRequest {
+
+  private String hashingAlgorithm;
+  private List<String> base64EncodedData;
+
+}
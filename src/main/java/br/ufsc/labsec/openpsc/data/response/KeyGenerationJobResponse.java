@@ -0,0 +1,17 @@
+package br.ufsc.labsec.openpsc.data.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeyGenerationJobResponse {
+
+  private String jobIdentifier;
+  private String status;
+  private String keyPairUniqueIdentifier;
+  private String error;
+
+}
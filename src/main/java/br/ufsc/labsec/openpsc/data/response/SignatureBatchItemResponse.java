@@ -0,0 +1,15 @@
+package br.ufsc.labsec.openpsc.data.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignatureBatchItemResponse {
+
+  private String base64EncodedSignature;
+  private String error;
+
+}
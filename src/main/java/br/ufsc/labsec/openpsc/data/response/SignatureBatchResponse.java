@@ -0,0 +1,18 @@
+package br.ufsc.labsec.openpsc.data.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignatureBatchResponse {
+
+  private String keyPairUniqueIdentifier;
+  private String base64EncodedPublicKey;
+  private List<SignatureBatchItemResponse> signatures;
+
+}
@@ -6,29 +6,40 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.PrimaryKeyJoinColumn;
-import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.GenericGenerator;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table
+@Table(
+    uniqueConstraints = @UniqueConstraint(name = KeyPair.OWNER_KEY_NAME_CONSTRAINT,
+        columnNames = {"owner_id", "keyName"}),
+    indexes = @Index(name = "idx_key_pair_owner_id", columnList = "owner_id, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class KeyPair {
 
+  public static final String OWNER_KEY_NAME_CONSTRAINT = "uk_key_pair_owner_key_name";
+
   @Id
-  @SequenceGenerator(name = "keypair_sequence", sequenceName = "keypair_sequence",
-      allocationSize = 1)
-  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "keypair_sequence")
+  @GenericGenerator(name = KeyPairIdGenerator.SEQUENCE_NAME,
+      strategy = "br.ufsc.labsec.openpsc.entity.KeyPairIdGenerator")
+  @GeneratedValue(strategy = GenerationType.SEQUENCE,
+      generator = KeyPairIdGenerator.SEQUENCE_NAME)
   private Long id;
   @Column(nullable = false, columnDefinition = "text")
   private String publicKey;
+  @Column(columnDefinition = "text")
+  private String encodedPublicKey;
   @Column(nullable = false, columnDefinition = "text")
   private String privateKey;
   @Column(nullable = false)
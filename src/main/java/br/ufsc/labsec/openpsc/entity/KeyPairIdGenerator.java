@@ -0,0 +1,38 @@
+package br.ufsc.labsec.openpsc.entity;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * {@link KeyPair} id generator that reserves blocks of ids, so most inserts don't touch the
+ * sequence. The block size is read from the {@value #BLOCK_SIZE_SETTING} JPA property.
+ * 
+ * The pooled-lo optimizer hands out the ids from the stored sequence value up to the value plus
+ * the block size, so a sequence left by the previous one-by-one allocation stays valid.
+ */
+public class KeyPairIdGenerator extends SequenceStyleGenerator {
+
+  public static final String SEQUENCE_NAME = "keypair_sequence";
+  public static final String BLOCK_SIZE_SETTING = "openpsc.key-pair.id-block-size";
+  public static final int DEFAULT_BLOCK_SIZE = 50;
+
+  @Override
+  public void configure(Type type, Properties params, ServiceRegistry serviceRegistry)
+      throws MappingException {
+    final var settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+    final var blockSize =
+        ConfigurationHelper.getInt(BLOCK_SIZE_SETTING, settings, DEFAULT_BLOCK_SIZE);
+    params.put(SEQUENCE_PARAM, SEQUENCE_NAME);
+    params.put(INCREMENT_PARAM, String.valueOf(blockSize));
+    params.put(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+    super.configure(type, params, serviceRegistry);
+  }
+
+}
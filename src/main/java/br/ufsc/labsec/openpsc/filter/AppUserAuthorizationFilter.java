@@ -18,6 +18,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import br.ufsc.labsec.openpsc.data.response.ErrorMessageResponse;
 import br.ufsc.labsec.openpsc.service.JWTManager;
+import br.ufsc.labsec.openpsc.service.StageTimings;
 
 public class AppUserAuthorizationFilter extends OncePerRequestFilter {
 
@@ -36,7 +37,10 @@ public class AppUserAuthorizationFilter extends OncePerRequestFilter {
     if (authorizationHeader != null && authorizationHeader.startsWith(AUTH_HEADER_START)) {
       try {
         final var token = authorizationHeader.substring(AUTH_HEADER_START.length());
-        final var decodedJWTManager = jwtManager.decode(token);
+        final JWTManager.DecodedJWTManager decodedJWTManager;
+        try (final var stage = StageTimings.stage("jwt")) {
+          decodedJWTManager = jwtManager.decode(token);
+        }
         final var principal = decodedJWTManager.getUsername();
         final var authorities = decodedJWTManager.getAuthorities();
         final var encodedAccessKey = decodedJWTManager.getAccessKey();
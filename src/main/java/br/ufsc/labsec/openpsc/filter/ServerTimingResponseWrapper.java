@@ -0,0 +1,164 @@
+package br.ufsc.labsec.openpsc.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Holds back up to {@link #BUFFER_SIZE} bytes of the body, so the Server-Timing header can still
+ * be set when the request ends. A larger body, or an explicit {@link #flushBuffer()}, commits the
+ * response with the timings taken at that moment, so a streamed response is never held in memory.
+ */
+class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+
+  static final int BUFFER_SIZE = 8 * 1024;
+
+  private ByteArrayOutputStream heldBody = new ByteArrayOutputStream();
+  private Supplier<String> serverTiming;
+  private ServletOutputStream outputStream;
+  private PrintWriter writer;
+
+  ServerTimingResponseWrapper(HttpServletResponse response) {
+    super(response);
+  }
+
+  void setServerTiming(Supplier<String> serverTiming) {
+    this.serverTiming = serverTiming;
+  }
+
+  /**
+   * Sets the Server-Timing header, unless the response was already committed, and writes the
+   * held back body.
+   */
+  void finish() throws IOException {
+    if (writer != null)
+      writer.flush();
+    commit();
+  }
+
+  private synchronized void commit() throws IOException {
+    if (heldBody == null)
+      return;
+    final var body = heldBody;
+    heldBody = null;
+    if (serverTiming != null && !getResponse().isCommitted())
+      setHeader(StageTimingFilter.RESPONSE_HEADER, serverTiming.get());
+    if (body.size() > 0)
+      body.writeTo(getResponse().getOutputStream());
+  }
+
+  private synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+    if (heldBody != null && heldBody.size() + length <= BUFFER_SIZE) {
+      heldBody.write(bytes, offset, length);
+      return;
+    }
+    commit();
+    getResponse().getOutputStream().write(bytes, offset, length);
+  }
+
+  private synchronized void flush() throws IOException {
+    if (heldBody == null)
+      getResponse().getOutputStream().flush();
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (writer != null)
+      throw new IllegalStateException("getWriter() has already been called.");
+    return getHeldOutputStream();
+  }
+
+  private ServletOutputStream getHeldOutputStream() {
+    if (outputStream == null)
+      outputStream = new ServletOutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+          ServerTimingResponseWrapper.this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+          ServerTimingResponseWrapper.this.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          ServerTimingResponseWrapper.this.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+          try {
+            getResponse().getOutputStream().setWriteListener(writeListener);
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+
+      };
+    return outputStream;
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    if (writer == null) {
+      if (outputStream != null)
+        throw new IllegalStateException("getOutputStream() has already been called.");
+      writer = new PrintWriter(
+          new OutputStreamWriter(getHeldOutputStream(), getCharacterEncoding()));
+    }
+    return writer;
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    finish();
+    super.flushBuffer();
+  }
+
+  @Override
+  public synchronized void resetBuffer() {
+    if (heldBody != null)
+      heldBody.reset();
+    super.resetBuffer();
+  }
+
+  @Override
+  public synchronized void reset() {
+    if (heldBody != null)
+      heldBody.reset();
+    super.reset();
+  }
+
+  @Override
+  public synchronized void sendError(int status) throws IOException {
+    heldBody = null;
+    super.sendError(status);
+  }
+
+  @Override
+  public synchronized void sendError(int status, String message) throws IOException {
+    heldBody = null;
+    super.sendError(status, message);
+  }
+
+  @Override
+  public synchronized void sendRedirect(String location) throws IOException {
+    heldBody = null;
+    super.sendRedirect(location);
+  }
+
+}
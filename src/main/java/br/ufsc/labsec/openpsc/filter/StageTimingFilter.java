@@ -0,0 +1,72 @@
+package br.ufsc.labsec.openpsc.filter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import br.ufsc.labsec.openpsc.service.StageTimings;
+
+/**
+ * Reports the time spent in each stage of a request in the Server-Timing response header. Enabled
+ * by the {@code openpsc.stage-timing.enabled} property, and then only for requests carrying the
+ * {@value #REQUEST_HEADER} header. Runs before the security filters, so token decoding is
+ * included. A response too large to hold back, such as a streamed export, gets the timings up to
+ * the moment it is committed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StageTimingFilter extends OncePerRequestFilter {
+
+  public static final String REQUEST_HEADER = "X-Stage-Timing";
+  public static final String RESPONSE_HEADER = "Server-Timing";
+
+  private final boolean enabled;
+
+  public StageTimingFilter(@Value("${openpsc.stage-timing.enabled:false}") boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !enabled || request.getHeader(REQUEST_HEADER) == null;
+  }
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    final var timings = StageTimings.begin();
+    final var existingWrapper =
+        WebUtils.getNativeResponse(response, ServerTimingResponseWrapper.class);
+    final var responseWrapper =
+        existingWrapper != null ? existingWrapper : new ServerTimingResponseWrapper(response);
+    final var start = System.nanoTime();
+    responseWrapper.setServerTiming(() -> {
+      timings.finish();
+      timings.add("total", System.nanoTime() - start);
+      return timings.toServerTiming();
+    });
+    try {
+      filterChain.doFilter(request, responseWrapper);
+    } finally {
+      StageTimings.end();
+      if (!isAsyncStarted(request))
+        responseWrapper.finish();
+    }
+  }
+
+}
@@ -2,11 +2,14 @@ package br.ufsc.labsec.openpsc.repository;
 
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import br.ufsc.labsec.openpsc.entity.AppUser;
 import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary;
 
 @Repository
 public interface KeyPairRepository extends JpaRepository<KeyPair, Long> {
@@ -31,9 +34,23 @@ public interface KeyPairRepository extends JpaRepository<KeyPair, Long> {
 
   public boolean existsKeyPairByKeyName(String keyName);
 
+  public boolean existsKeyPairByOwnerAndKeyName(AppUser owner, String keyName);
+
   public boolean existsKeyPairByUniqueIdentifier(String uniqueIdentifier);
 
   @Query("select k from KeyPair k join k.owner u where u.username = :username")
   public List<KeyPair> findKeyPairByOwnerUsername(String username);
 
+  @Query("select new br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary(k.id, k.uniqueIdentifier, k.keyAlgorithm, k.keyParameter, k.keyName, k.publicKey, k.encodedPublicKey) from KeyPair k join k.owner u where u.username = :username and k.id > :afterId order by k.id")
+  public List<KeyPairSummary> findKeyPairSummaryByOwnerUsername(String username, long afterId,
+      Pageable pageable);
+
+  @Query("select new br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary(k.id, k.uniqueIdentifier, k.keyAlgorithm, k.keyParameter, k.keyName, k.publicKey, k.encodedPublicKey) from KeyPair k where k.encodedPublicKey is null and k.id > :afterId order by k.id")
+  public List<KeyPairSummary> findKeyPairSummaryByEncodedPublicKeyIsNull(long afterId,
+      Pageable pageable);
+
+  @Modifying
+  @Query("update KeyPair k set k.encodedPublicKey = :encodedPublicKey where k.id = :id and k.encodedPublicKey is null")
+  public int updateEncodedPublicKey(long id, String encodedPublicKey);
+
 }
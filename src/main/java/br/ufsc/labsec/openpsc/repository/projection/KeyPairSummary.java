@@ -0,0 +1,24 @@
+package br.ufsc.labsec.openpsc.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The columns of a {@link br.ufsc.labsec.openpsc.entity.KeyPair} needed to list it, without
+ * the encrypted private key identifier.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeyPairSummary {
+
+  private Long id;
+  private String uniqueIdentifier;
+  private String keyAlgorithm;
+  private String keyParameter;
+  private String keyName;
+  private String publicKey;
+  private String encodedPublicKey;
+
+}
@@ -0,0 +1,30 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.security.Provider;
+import java.security.Security;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * The BouncyCastle provider shared by every JCA lookup of the application. Building a provider
+ * registers hundreds of algorithms, so it is done once, and the instance is also registered in
+ * {@link Security} so lookups by name find the same one.
+ */
+public final class BouncyCastle {
+
+  public static final Provider PROVIDER;
+
+  static {
+    final var registeredProvider = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+    if (registeredProvider != null)
+      PROVIDER = registeredProvider;
+    else {
+      final var provider = new BouncyCastleProvider();
+      Security.addProvider(provider);
+      PROVIDER = provider;
+    }
+  }
+
+  private BouncyCastle() {}
+
+}
@@ -1,8 +1,14 @@
 package br.ufsc.labsec.openpsc.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -13,6 +19,10 @@ import org.springframework.stereotype.Service;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
 @Service
 public class JWTManager {
@@ -21,39 +31,84 @@ public class JWTManager {
   private ParameterEncryptor parameterEncryptor;
 
   private static final Algorithm ALGORITHM = Algorithm.HMAC256(SystemKey.getKey());
+  private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
   private static final long ACCESS_TOKEN_VALIDITY_MS = 8 * 60 * 60 * 1000;
   private static final String SALT = "PSC";
   public static final String ROLES_CLAIM = "roles";
   public static final String ACCESS_KEY_CLAIM = "accessKey";
-
+  private static final long DECODED_TOKEN_CACHE_MAXIMUM_SIZE = 10_000;
+  private static final Duration DECODED_TOKEN_CACHE_MAXIMUM_TTL = Duration.ofMinutes(10);
 
   public static class DecodedJWTManager {
 
-    private final DecodedJWT decodedJWT;
+    private final String username;
+    private final Collection<SimpleGrantedAuthority> authorities;
+    private final String accessKey;
+    private final Date expiresAt;
 
     public DecodedJWTManager(DecodedJWT decodedJwt) {
-      this.decodedJWT = decodedJwt;
+      this.username = decodedJwt.getSubject();
+      final var roles = decodedJwt.getClaim(ROLES_CLAIM).asArray(String.class);
+      final var authorities = new ArrayList<SimpleGrantedAuthority>();
+      Arrays.stream(roles).forEach(role -> {
+        authorities.add(new SimpleGrantedAuthority(role));
+      });
+      this.authorities = Collections.unmodifiableList(authorities);
+      this.accessKey = decodedJwt.getClaim(ACCESS_KEY_CLAIM).asString();
+      this.expiresAt = decodedJwt.getExpiresAt();
     }
 
     public String getUsername() {
-      return decodedJWT.getSubject();
+      return username;
     }
 
     public Collection<SimpleGrantedAuthority> getAuthorities() {
-      final var roles = decodedJWT.getClaim(ROLES_CLAIM).asArray(String.class);
-      final var authorities = new ArrayList<SimpleGrantedAuthority>();
-      Arrays.stream(roles).forEach(role -> {
-        authorities.add(new SimpleGrantedAuthority(role));
-      });
       return authorities;
     }
 
     public String getAccessKey() {
-      return decodedJWT.getClaim(ACCESS_KEY_CLAIM).asString();
+      return accessKey;
+    }
+
+    public Date getExpiresAt() {
+      return expiresAt;
     }
 
   }
 
+  /**
+   * Keeps a verified token no longer than its own expiration, so a cached entry is never served
+   * for a token the verifier would reject as expired.
+   */
+  private static class DecodedTokenExpiry implements Expiry<String, DecodedJWTManager> {
+
+    @Override
+    public long expireAfterCreate(String key, DecodedJWTManager value, long currentTime) {
+      final var maximumTtl = DECODED_TOKEN_CACHE_MAXIMUM_TTL.toNanos();
+      if (value.getExpiresAt() == null)
+        return maximumTtl;
+      final var remainingMs = value.getExpiresAt().getTime() - System.currentTimeMillis();
+      return Math.max(0, Math.min(maximumTtl, Duration.ofMillis(remainingMs).toNanos()));
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, DecodedJWTManager value, long currentTime,
+        long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, DecodedJWTManager value, long currentTime,
+        long currentDuration) {
+      return currentDuration;
+    }
+
+  }
+
+  private final Cache<String, DecodedJWTManager> decodedTokenCache =
+      Caffeine.newBuilder().maximumSize(DECODED_TOKEN_CACHE_MAXIMUM_SIZE)
+          .expireAfter(new DecodedTokenExpiry()).build();
+
   public String createAccessToken(String username, String password, String issuer,
       List<String> roles) {
     final var currTime = System.currentTimeMillis();
@@ -66,8 +121,23 @@ public class JWTManager {
   }
 
   public DecodedJWTManager decode(String token) {
-    final var jwtVerifier = JWT.require(ALGORITHM).build();
-    final var decodedJWT = jwtVerifier.verify(token);
-    return new DecodedJWTManager(decodedJWT);
+    final var tokenHash = hashToken(token);
+    final var cachedDecodedJWTManager = decodedTokenCache.getIfPresent(tokenHash);
+    if (cachedDecodedJWTManager != null)
+      return cachedDecodedJWTManager;
+    final var decodedJWT = VERIFIER.verify(token);
+    final var decodedJWTManager = new DecodedJWTManager(decodedJWT);
+    decodedTokenCache.put(tokenHash, decodedJWTManager);
+    return decodedJWTManager;
+  }
+
+  private String hashToken(String token) {
+    try {
+      final var digest = MessageDigest.getInstance("SHA-256")
+          .digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
   }
 }
@@ -8,13 +8,13 @@ import org.springframework.stereotype.Service;
 
 import br.ufsc.labsec.openpsc.repository.KnetConfigurationRepository;
 import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.openpsc.service.hsm.HsmBackend;
+import br.ufsc.labsec.openpsc.service.hsm.HsmKeyIdentifiers;
+import br.ufsc.labsec.openpsc.service.hsm.HsmMetrics;
+import br.ufsc.labsec.openpsc.service.hsm.KNetHsmBackend;
 import br.ufsc.labsec.valueobject.crypto.KNetRequester;
-import br.ufsc.labsec.valueobject.crypto.KeyIdentifierPair;
 import br.ufsc.labsec.valueobject.crypto.keys.KeyManagerException;
-import br.ufsc.labsec.valueobject.crypto.keys.knet.KNetKeyTranslator;
 import br.ufsc.labsec.valueobject.exception.KNetException;
-import br.ufsc.labsec.valueobject.kmip.KkmipClientBuilder;
-import br.ufsc.labsec.valueobject.util.KeyType;
 
 @Service
 public class KNetCommunicationService {
@@ -25,53 +25,54 @@ public class KNetCommunicationService {
   @Autowired
   private ParameterEncryptor parameterEncryptor;
 
-  private KNetRequester kNetRequester = null;
+  @Autowired
+  private HsmBackend hsmBackend;
 
-  static {
-    final var props = System.getProperties();
-    props.setProperty("jdk.internal.httpclient.disableHostnameVerification",
-        Boolean.TRUE.toString());
-  }
+  @Autowired
+  private HsmMetrics hsmMetrics;
 
-  public KeyIdentifierPair createKeyPair(String keyAlgorithm, String keyParameter, String keyName)
+  public HsmKeyIdentifiers createKeyPair(String keyAlgorithm, String keyParameter, String keyName)
       throws KNetCommunicationServiceException, KNetException {
-    if (kNetRequester == null)
-      throw new KNetCommunicationServiceException();
-    final var keyIdentifierPair =
-        kNetRequester.generateKeyPair(KeyType.build(keyAlgorithm, keyParameter), keyParameter,
-            keyName + "-private", keyName + "-public");
-    return keyIdentifierPair;
+    try (final var sample = hsmMetrics.start("createKeyPair", keyAlgorithm, keyParameter)) {
+      final var identifiers = hsmBackend.createKeyPair(keyAlgorithm, keyParameter, keyName);
+      sample.success();
+      return identifiers;
+    }
   }
 
   public byte[] sign(String privateKeyUniqueIdentifier, String algorithm, String parameter,
       byte[] data) throws KNetCommunicationServiceException, KNetException {
-    if (kNetRequester == null)
-      throw new KNetCommunicationServiceException();
-    final var signature =
-        kNetRequester.sign(privateKeyUniqueIdentifier, KeyType.build(algorithm, parameter), data);
-    return signature;
+    try (final var sample = hsmMetrics.start("sign", algorithm, parameter)) {
+      final var signature = hsmBackend.sign(privateKeyUniqueIdentifier, algorithm, parameter, data);
+      sample.success();
+      return signature;
+    }
   }
 
   public void deleteKeyPair(String privateKey, String publicKey)
       throws KNetCommunicationServiceException, KNetException {
-    if (kNetRequester == null)
-      throw new KNetCommunicationServiceException();
-    kNetRequester.revokeAndDestroy(new String[] {privateKey, publicKey});
+    deleteKeyPair(privateKey, publicKey, null, null);
+  }
+
+  public void deleteKeyPair(String privateKey, String publicKey, String keyAlgorithm,
+      String keyParameter) throws KNetCommunicationServiceException, KNetException {
+    try (final var sample = hsmMetrics.start("deleteKeyPair", keyAlgorithm, keyParameter)) {
+      hsmBackend.deleteKeyPair(privateKey, publicKey);
+      sample.success();
+    }
   }
 
   public PublicKey getPublicKey(String keyIdentifier, String keyAlgorithm, String keyParameter)
       throws KNetCommunicationServiceException, KeyManagerException, KNetException {
-    if (kNetRequester == null)
-      throw new KNetCommunicationServiceException();
-    final var publicKey =
-        kNetRequester.getPublicKey(keyIdentifier, KeyType.build(keyAlgorithm, keyParameter));
-    return new KNetKeyTranslator().buildJavaPublicKey(publicKey,
-        KeyType.build(keyAlgorithm, keyParameter));
+    try (final var sample = hsmMetrics.start("getPublicKey", keyAlgorithm, keyParameter)) {
+      final var publicKey = hsmBackend.getPublicKey(keyIdentifier, keyAlgorithm, keyParameter);
+      sample.success();
+      return publicKey;
+    }
   }
 
   public void setKnetConfiguration(Map<String, String> parameters) throws KNetException {
-    this.kNetRequester = new KNetRequester(KkmipClientBuilder.build(null, null, parameters),
-        parameters.get("USERNAME"), parameters.get("PW"));
+    hsmBackend.configure(parameters);
   }
 
   public void loadKnetConfiguration(String accessKey)
@@ -88,14 +89,19 @@ public class KNetCommunicationService {
   }
 
   public boolean isKnetConfigurationLoaded() {
-    return kNetRequester != null;
+    return hsmBackend.isConfigured();
   }
 
   /**
-   * @param kNetRequester the kNetRequester to set
+   * @param kNetRequester the kNetRequester to set, or null to unload the configuration
    */
   public void setkNetRequester(KNetRequester kNetRequester) {
-    this.kNetRequester = kNetRequester;
+    if (kNetRequester == null)
+      hsmBackend.unload();
+    else if (hsmBackend instanceof KNetHsmBackend)
+      ((KNetHsmBackend) hsmBackend).setkNetRequester(kNetRequester);
+    else
+      throw new IllegalStateException("The configured HSM backend does not use KNet.");
   }
 
 }
@@ -0,0 +1,147 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException;
+import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException.ExceptionType;
+
+/**
+ * Runs key generation outside the request thread. Jobs run on a bounded executor, so a burst of
+ * slow generations can't take threads and database connections away from signing, and are kept
+ * for a while after they finish so clients can poll for the result.
+ */
+@Service
+public class KeyGenerationJobService {
+
+  public static final String QUEUE_FULL = "Too many pending key generation jobs.";
+
+  public enum Status {
+    PENDING, COMPLETED, FAILED
+  }
+
+  public static class KeyGenerationJob {
+
+    private final String identifier;
+    private final String username;
+    private final CompletableFuture<KeyPair> result = new CompletableFuture<>();
+
+    public KeyGenerationJob(String identifier, String username) {
+      this.identifier = identifier;
+      this.username = username;
+    }
+
+    public String getIdentifier() {
+      return identifier;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public CompletableFuture<KeyPair> getResult() {
+      return result;
+    }
+
+    public Status getStatus() {
+      if (!result.isDone())
+        return Status.PENDING;
+      return result.isCompletedExceptionally() ? Status.FAILED : Status.COMPLETED;
+    }
+
+    /**
+     * @return the generated key pair, or null if the job hasn't completed successfully
+     */
+    public KeyPair getKeyPair() {
+      return getStatus() == Status.COMPLETED ? result.join() : null;
+    }
+
+    /**
+     * @return the error message, or null if the job hasn't failed
+     */
+    public String getError() {
+      if (getStatus() != Status.FAILED)
+        return null;
+      try {
+        result.join();
+        return null;
+      } catch (CompletionException e) {
+        return e.getCause().getMessage();
+      }
+    }
+
+  }
+
+  private final KeyPairService keyPairService;
+  private final ThreadPoolExecutor executor;
+  private final Cache<String, KeyGenerationJob> jobs;
+
+  @Autowired
+  public KeyGenerationJobService(KeyPairService keyPairService,
+      @Value("${openpsc.key-generation.threads:2}") int threads,
+      @Value("${openpsc.key-generation.queue-capacity:100}") int queueCapacity,
+      @Value("${openpsc.key-generation.job-retention-minutes:60}") long jobRetentionMinutes,
+      @Value("${openpsc.key-generation.max-jobs:10000}") long maxJobs) {
+    this.keyPairService = keyPairService;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("key-generation-"));
+    this.jobs = Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(jobRetentionMinutes))
+        .maximumSize(maxJobs).build();
+  }
+
+  /**
+   * Queues the generation of a key pair.
+   * 
+   * @throws RejectedExecutionException if the queue is full
+   */
+  public KeyGenerationJob submit(String username, String accessKey, String keyAlgorithm,
+      String keyParameter, String keyName) {
+    final var job = new KeyGenerationJob(UUID.randomUUID().toString(), username);
+    jobs.put(job.getIdentifier(), job);
+    try {
+      executor.execute(() -> {
+        try {
+          job.getResult().complete(keyPairService.createKeyPair(username, accessKey,
+              keyAlgorithm, keyParameter, keyName));
+        } catch (Throwable e) {
+          job.getResult().completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      jobs.invalidate(job.getIdentifier());
+      throw e;
+    }
+    return job;
+  }
+
+  public KeyGenerationJob getJob(String username, String jobIdentifier)
+      throws KeyPairServiceException {
+    final var job = jobs.getIfPresent(jobIdentifier);
+    if (job == null || !job.getUsername().equals(username))
+      throw new KeyPairServiceException(ExceptionType.JOB_NOT_FOUND);
+    return job;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
@@ -1,37 +1,168 @@
 package br.ufsc.labsec.openpsc.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
-import javax.transaction.Transactional;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import java.util.Map;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.util.Arrays;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import br.ufsc.labsec.openpsc.entity.KeyPair;
 import br.ufsc.labsec.openpsc.repository.AppUserRepository;
 import br.ufsc.labsec.openpsc.repository.KeyPairRepository;
+import br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary;
+import br.ufsc.labsec.openpsc.service.PublicKeyCache.CachedPublicKey;
 import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
 import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException;
 import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException.ExceptionType;
+import br.ufsc.labsec.openpsc.service.hsm.HsmKeyIdentifiers;
 import br.ufsc.labsec.valueobject.crypto.keys.KeyManagerException;
 import br.ufsc.labsec.valueobject.exception.KNetException;
 
+/**
+ * Key pair operations. HSM calls are made outside of any transaction, so a slow HSM doesn't hold
+ * database connections; writes run in their own short transactions.
+ */
 @Service
-@Transactional
 public class KeyPairService {
 
+  public static final int MAX_BATCH_SIZE = 1000;
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  public static final int MAX_PAGE_SIZE = 1000;
+  static final int EXPORT_CHUNK_SIZE = 500;
+  static final int BACKFILL_BATCH_SIZE = 500;
+  private static final String INVALID_BATCH_ITEM = "Data is not valid Base64.";
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+  /**
+   * SHA-2 only: the HSM infers the RSA DigestInfo from the digest length alone, so a SHA-3 digest
+   * would be signed as a SHA-2 one.
+   */
+  private static final Map<String, Integer> DIGEST_LENGTHS = Map.of(
+      NISTObjectIdentifiers.id_sha224.getId(), 28,
+      NISTObjectIdentifiers.id_sha256.getId(), 32,
+      NISTObjectIdentifiers.id_sha384.getId(), 48,
+      NISTObjectIdentifiers.id_sha512.getId(), 64);
+
+  public static class SignedItem {
+
+    private final String base64EncodedSignature;
+    private final String error;
+
+    public SignedItem(String base64EncodedSignature, String error) {
+      this.base64EncodedSignature = base64EncodedSignature;
+      this.error = error;
+    }
+
+    public String getBase64EncodedSignature() {
+      return base64EncodedSignature;
+    }
+
+    public String getError() {
+      return error;
+    }
+
+  }
+
+  public static class SignatureResult {
+
+    private final String base64EncodedSignature;
+    private final String keyPairUniqueIdentifier;
+    private final String base64EncodedPublicKey;
+
+    public SignatureResult(String base64EncodedSignature, String keyPairUniqueIdentifier,
+        String base64EncodedPublicKey) {
+      this.base64EncodedSignature = base64EncodedSignature;
+      this.keyPairUniqueIdentifier = keyPairUniqueIdentifier;
+      this.base64EncodedPublicKey = base64EncodedPublicKey;
+    }
+
+    public String getBase64EncodedSignature() {
+      return base64EncodedSignature;
+    }
+
+    public String getKeyPairUniqueIdentifier() {
+      return keyPairUniqueIdentifier;
+    }
+
+    public String getBase64EncodedPublicKey() {
+      return base64EncodedPublicKey;
+    }
+
+  }
+
+  public static class BatchSignature {
+
+    private final KeyPair keyPair;
+    private final List<SignedItem> signatures;
+
+    public BatchSignature(KeyPair keyPair, List<SignedItem> signatures) {
+      this.keyPair = keyPair;
+      this.signatures = signatures;
+    }
+
+    public KeyPair getKeyPair() {
+      return keyPair;
+    }
+
+    public List<SignedItem> getSignatures() {
+      return signatures;
+    }
+
+  }
+
+  public static class KeyPairPage {
+
+    private final List<KeyPairSummary> keyPairs;
+    private final String nextContinuationToken;
+
+    public KeyPairPage(List<KeyPairSummary> keyPairs, String nextContinuationToken) {
+      this.keyPairs = keyPairs;
+      this.nextContinuationToken = nextContinuationToken;
+    }
+
+    public List<KeyPairSummary> getKeyPairs() {
+      return keyPairs;
+    }
+
+    /**
+     * @return the token of the next page, or null if this is the last one
+     */
+    public String getNextContinuationToken() {
+      return nextContinuationToken;
+    }
+
+  }
+
+  public interface KeyPairExportHandler {
+
+    void accept(KeyPairSummary keyPair, String encodedPublicKey) throws IOException;
+
+  }
+
   private final AppUserRepository appUserRepository;
   private final KeyPairRepository keyPairRepository;
   private final KNetCommunicationService kNetCommunicationService;
-  private final MessageDigest digest;
   private final ParameterEncryptor parameterEncryptor;
+  private final PublicKeyCache publicKeyCache;
+  private final SignatureVerifier signatureVerifier;
+  private final PregeneratedKeyPairPool pregeneratedKeyPairPool;
+  private final TransactionTemplate transactionTemplate;
 
   /**
    * 
@@ -40,52 +171,161 @@ public class KeyPairService {
    */
   @Autowired
   public KeyPairService(KeyPairRepository keyPairRepository, AppUserRepository appUserRepository,
-      KNetCommunicationService kNetCommunicationService, ParameterEncryptor parameterEncryptor) {
+      KNetCommunicationService kNetCommunicationService, ParameterEncryptor parameterEncryptor,
+      PublicKeyCache publicKeyCache, SignatureVerifier signatureVerifier,
+      PregeneratedKeyPairPool pregeneratedKeyPairPool,
+      TransactionTemplate transactionTemplate) {
     super();
     this.keyPairRepository = keyPairRepository;
     this.appUserRepository = appUserRepository;
     this.kNetCommunicationService = kNetCommunicationService;
     this.parameterEncryptor = parameterEncryptor;
-    try {
-      this.digest = MessageDigest.getInstance("SHA-256", new BouncyCastleProvider());
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException(e);
-    }
+    this.publicKeyCache = publicKeyCache;
+    this.signatureVerifier = signatureVerifier;
+    this.pregeneratedKeyPairPool = pregeneratedKeyPairPool;
+    this.transactionTemplate = transactionTemplate;
   }
 
   public List<KeyPair> getKeyPairs(String username) {
     return keyPairRepository.findKeyPairByOwnerUsername(username);
   }
 
+  /**
+   * Lists every key pair of the user in id order, with the same projection as the paged listing.
+   */
+  public List<KeyPairSummary> getKeyPairSummaries(String username) {
+    return keyPairRepository.findKeyPairSummaryByOwnerUsername(username, 0, Pageable.unpaged());
+  }
+
+  /**
+   * Lists the user's key pairs in id order, a page at a time. The continuation token holds the id
+   * of the last key pair of the previous page, so each page is a range scan of the (owner_id, id)
+   * index no matter how deep it is.
+   */
+  public KeyPairPage getKeyPairPage(String username, String continuationToken, int pageSize)
+      throws KeyPairServiceException {
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+      throw new KeyPairServiceException(ExceptionType.INVALID_PAGE_SIZE);
+    final var afterId = continuationToken != null ? decodeContinuationToken(continuationToken) : 0;
+    final var keyPairs = keyPairRepository.findKeyPairSummaryByOwnerUsername(username, afterId,
+        PageRequest.of(0, pageSize + 1));
+    if (keyPairs.size() <= pageSize)
+      return new KeyPairPage(keyPairs, null);
+    final var page = keyPairs.subList(0, pageSize);
+    final var lastId = page.get(pageSize - 1).getId();
+    return new KeyPairPage(page, encodeContinuationToken(lastId));
+  }
+
+  /**
+   * Hands every key pair of the user to the handler in id order, reading them from the database
+   * {@link #EXPORT_CHUNK_SIZE} at a time, so the listing is never held in memory. Each chunk is a
+   * short read that resumes after the last id of the previous one, so no database connection is
+   * held while the handler writes or while key pairs without a stored public key, which the public
+   * key backfill hasn't reached yet, are resolved in the HSM.
+   */
+  public void exportKeyPairs(String username, KeyPairExportHandler handler)
+      throws IOException, KeyPairServiceException, KeyManagerException {
+    var afterId = 0L;
+    List<KeyPairSummary> keyPairs;
+    do {
+      keyPairs = keyPairRepository.findKeyPairSummaryByOwnerUsername(username, afterId,
+          PageRequest.of(0, EXPORT_CHUNK_SIZE));
+      for (final var keyPair : keyPairs)
+        handler.accept(keyPair, getEncodedPublicKey(keyPair));
+      if (!keyPairs.isEmpty())
+        afterId = keyPairs.get(keyPairs.size() - 1).getId();
+    } while (keyPairs.size() == EXPORT_CHUNK_SIZE);
+  }
+
+  private static String encodeContinuationToken(long id) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static long decodeContinuationToken(String continuationToken)
+      throws KeyPairServiceException {
+    try {
+      final var id = Base64.getUrlDecoder().decode(continuationToken);
+      return Long.parseLong(new String(id, StandardCharsets.US_ASCII));
+    } catch (IllegalArgumentException e) {
+      throw new KeyPairServiceException(ExceptionType.INVALID_CONTINUATION_TOKEN);
+    }
+  }
+
   public KeyPair createKeyPair(String username, String accessKey, String keyAlgorithm,
       String keyParameter, String keyName)
       throws KeyPairServiceException, KNetCommunicationServiceException {
     try {
-      if (keyPairRepository.findKeyPairByOwnerUsernameAndKeyName(username, keyName).isPresent())
+      final var keyOwner = appUserRepository.findAppUserByUsername(username).get();
+      if (keyPairRepository.existsKeyPairByOwnerAndKeyName(keyOwner, keyName))
         throw new KeyPairServiceException(ExceptionType.KEY_NAME_IN_USE);
 
-      final var hsmKeyName = generateHsmKeyName(username, keyName);
-      final var identifiers =
-          kNetCommunicationService.createKeyPair(keyAlgorithm, keyParameter, hsmKeyName);
+      final HsmKeyIdentifiers identifiers;
+      final var pooledKeyPair = pregeneratedKeyPairPool.take(keyAlgorithm, keyParameter);
+      if (pooledKeyPair != null)
+        identifiers = pooledKeyPair.getIdentifiers();
+      else {
+        final var hsmKeyName = generateHsmKeyName(username, keyName);
+        identifiers =
+            kNetCommunicationService.createKeyPair(keyAlgorithm, keyParameter, hsmKeyName);
+      }
 
-      final var privateKeyIdentifier = identifiers.getPrivateKeyIdentifier();
-      final var publicKeyIdentifier = identifiers.getPublicKeyIdentifier();
-      final var uniqueIdentifier =
-          generateUniqueIdentifier(privateKeyIdentifier, publicKeyIdentifier);
-      final var keyOwner = appUserRepository.findAppUserByUsername(username).get();
+      try {
+        final var privateKeyIdentifier = identifiers.getPrivateKeyIdentifier();
+        final var publicKeyIdentifier = identifiers.getPublicKeyIdentifier();
+        final var encodedPublicKey = pooledKeyPair != null
+            ? pooledKeyPair.getBase64EncodedPublicKey()
+            : getCachedPublicKey(publicKeyIdentifier, keyAlgorithm, keyParameter)
+                .getBase64Encoding();
+        final var uniqueIdentifier =
+            generateUniqueIdentifier(privateKeyIdentifier, publicKeyIdentifier);
 
-      final var encryptedPrivateKeyIdentifier =
-          parameterEncryptor.encrypt(privateKeyIdentifier, accessKey);
+        final var encryptedPrivateKeyIdentifier =
+            parameterEncryptor.encrypt(privateKeyIdentifier, accessKey);
 
-      final var keyPairEntity = new KeyPair(publicKeyIdentifier, encryptedPrivateKeyIdentifier,
-          keyAlgorithm, keyParameter, uniqueIdentifier, keyName, keyOwner);
+        final var keyPairEntity = new KeyPair(publicKeyIdentifier, encryptedPrivateKeyIdentifier,
+            keyAlgorithm, keyParameter, uniqueIdentifier, keyName, keyOwner);
+        keyPairEntity.setEncodedPublicKey(encodedPublicKey);
 
-      return keyPairRepository.save(keyPairEntity);
-    } catch (NoSuchAlgorithmException | KNetException | IllegalArgumentException e) {
+        return transactionTemplate.execute(status -> keyPairRepository.save(keyPairEntity));
+      } catch (Exception e) {
+        if (pooledKeyPair == null
+            || !pregeneratedKeyPairPool.giveBack(keyAlgorithm, keyParameter, pooledKeyPair))
+          destroyUnboundKeyPair(identifiers, keyAlgorithm, keyParameter);
+        throw e;
+      }
+    } catch (DataIntegrityViolationException e) {
+      if (isKeyNameConstraintViolation(e))
+        throw new KeyPairServiceException(ExceptionType.KEY_NAME_IN_USE);
+      throw e;
+    } catch (NoSuchAlgorithmException | KNetException | KeyManagerException
+        | IllegalArgumentException e) {
       throw new KeyPairServiceException();
     }
   }
 
+  private static boolean isKeyNameConstraintViolation(DataIntegrityViolationException e) {
+    if (!(e.getCause() instanceof ConstraintViolationException))
+      return false;
+    final var constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+    return constraintName != null
+        && constraintName.toLowerCase().contains(KeyPair.OWNER_KEY_NAME_CONSTRAINT);
+  }
+
+  /**
+   * Destroys a key pair created in the HSM that could not be stored.
+   */
+  private void destroyUnboundKeyPair(HsmKeyIdentifiers identifiers, String keyAlgorithm,
+      String keyParameter) {
+    try {
+      kNetCommunicationService.deleteKeyPair(identifiers.getPrivateKeyIdentifier(),
+          identifiers.getPublicKeyIdentifier(), keyAlgorithm, keyParameter);
+      publicKeyCache.invalidate(identifiers.getPublicKeyIdentifier());
+    } catch (KNetCommunicationServiceException | KNetException e) {
+      // the key pair is left in the HSM
+    }
+  }
+
   private String generateHsmKeyName(String username, String keyName) {
     try {
       final var secureRandom = SecureRandom.getInstanceStrong();
@@ -108,8 +348,11 @@ public class KeyPairService {
       final var keyPair = optionalKeyPair.get();
       final var privateKeyIdentifier =
           parameterEncryptor.decrypt(keyPair.getPrivateKey(), encodingKey);
-      kNetCommunicationService.deleteKeyPair(privateKeyIdentifier, keyPair.getPublicKey());
-      keyPairRepository.deleteKeyPairByUniqueIdentifier(uniqueIdentifier);
+      kNetCommunicationService.deleteKeyPair(privateKeyIdentifier, keyPair.getPublicKey(),
+          keyPair.getKeyAlgorithm(), keyPair.getKeyParameter());
+      publicKeyCache.invalidate(keyPair.getPublicKey());
+      transactionTemplate.executeWithoutResult(
+          status -> keyPairRepository.deleteKeyPairByUniqueIdentifier(uniqueIdentifier));
     }
   }
 
@@ -117,34 +360,167 @@ public class KeyPairService {
       String keyUniqueIdentifier, String hashingAlgorithm)
       throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, KNetException,
       KeyPairServiceException, KNetCommunicationServiceException {
+    final var keyPair = getKeyPair(username, keyUniqueIdentifier);
+    return sign(keyPair, accessKey, base64EncodedData, hashingAlgorithm);
+  }
+
+  public SignatureResult signWithPublicKey(String username, String accessKey,
+      String base64EncodedData, String keyUniqueIdentifier, String hashingAlgorithm)
+      throws KNetException, KeyPairServiceException, KNetCommunicationServiceException,
+      KeyManagerException {
+    final KeyPair keyPair;
+    try (final var stage = StageTimings.stage("repository")) {
+      keyPair = getKeyPair(username, keyUniqueIdentifier);
+    }
+    final var base64Signature = sign(keyPair, accessKey, base64EncodedData, hashingAlgorithm);
+    final String publicKey;
+    try (final var stage = StageTimings.stage("publicKey")) {
+      publicKey = getEncodedPublicKey(keyPair);
+    }
+    return new SignatureResult(base64Signature, keyPair.getUniqueIdentifier(), publicKey);
+  }
+
+  /**
+   * Signs a digest computed by the client, so the data itself never has to be uploaded. The digest
+   * is handed to the HSM as is, as if it had been computed here.
+   */
+  public SignatureResult signDigest(String username, String accessKey, String base64EncodedDigest,
+      String keyUniqueIdentifier, String digestAlgorithmOid) throws KNetException,
+      KeyPairServiceException, KNetCommunicationServiceException, KeyManagerException {
+    final var digestLength =
+        digestAlgorithmOid != null ? DIGEST_LENGTHS.get(digestAlgorithmOid) : null;
+    if (digestLength == null)
+      throw new KeyPairServiceException(ExceptionType.UNSUPPORTED_DIGEST_ALGORITHM);
+    final byte[] digest;
+    try {
+      digest = Base64.getDecoder().decode(base64EncodedDigest);
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw new KeyPairServiceException(ExceptionType.INVALID_DIGEST);
+    }
+    if (digest.length != digestLength)
+      throw new KeyPairServiceException(ExceptionType.INVALID_DIGEST);
+
+    final KeyPair keyPair;
+    try (final var stage = StageTimings.stage("repository")) {
+      keyPair = getKeyPair(username, keyUniqueIdentifier);
+    }
+    final var base64Signature = signHash(keyPair, accessKey, digest);
+    final String publicKey;
+    try (final var stage = StageTimings.stage("publicKey")) {
+      publicKey = getEncodedPublicKey(keyPair);
+    }
+    return new SignatureResult(base64Signature, keyPair.getUniqueIdentifier(), publicKey);
+  }
+
+  /**
+   * Signs data read from a stream, hashing it as it arrives so the payload is never held in
+   * memory. The key is looked up before the stream is read.
+   */
+  public SignatureResult signStream(String username, String accessKey, InputStream data,
+      String keyUniqueIdentifier, String hashingAlgorithm) throws IOException, KNetException,
+      KeyPairServiceException, KNetCommunicationServiceException, KeyManagerException {
+    final var messageDigest = hashingAlgorithm != null ? getMessageDigest(hashingAlgorithm) : null;
+    if (messageDigest == null)
+      throw new KeyPairServiceException(ExceptionType.UNSUPPORTED_HASHING_ALGORITHM);
+
+    final KeyPair keyPair;
+    try (final var stage = StageTimings.stage("repository")) {
+      keyPair = getKeyPair(username, keyUniqueIdentifier);
+    }
+    try (final var stage = StageTimings.stage("digest")) {
+      final var buffer = new byte[STREAM_BUFFER_SIZE];
+      int read;
+      while ((read = data.read(buffer)) != -1)
+        messageDigest.update(buffer, 0, read);
+    }
+    final var base64Signature = signHash(keyPair, accessKey, messageDigest.digest());
+    final String publicKey;
+    try (final var stage = StageTimings.stage("publicKey")) {
+      publicKey = getEncodedPublicKey(keyPair);
+    }
+    return new SignatureResult(base64Signature, keyPair.getUniqueIdentifier(), publicKey);
+  }
+
+  private String sign(KeyPair keyPair, String accessKey, String base64EncodedData,
+      String hashingAlgorithm) throws KNetException, KNetCommunicationServiceException {
+    final var base64Decoder = Base64.getDecoder();
+    final var data = base64Decoder.decode(base64EncodedData);
+    final byte[] hashedData;
+    try (final var stage = StageTimings.stage("digest")) {
+      hashedData = hash(getMessageDigest(hashingAlgorithm), data);
+    }
+    return signHash(keyPair, accessKey, hashedData);
+  }
+
+  private String signHash(KeyPair keyPair, String accessKey, byte[] hashedData)
+      throws KNetException, KNetCommunicationServiceException {
+    final String privateKeyIdentifier;
+    try (final var stage = StageTimings.stage("decrypt")) {
+      privateKeyIdentifier = parameterEncryptor.decrypt(keyPair.getPrivateKey(), accessKey);
+    }
+    final byte[] signature;
+    try (final var stage = StageTimings.stage("hsm")) {
+      signature = kNetCommunicationService.sign(privateKeyIdentifier, keyPair.getKeyAlgorithm(),
+          keyPair.getKeyParameter(), hashedData);
+    }
+    final var base64Encoder = Base64.getEncoder();
+    final var base64Signature = base64Encoder.encodeToString(signature);
+
+    return base64Signature;
+  }
+
+  public BatchSignature signBatch(String username, String accessKey,
+      List<String> base64EncodedData, String keyUniqueIdentifier, String hashingAlgorithm)
+      throws KeyPairServiceException, KNetCommunicationServiceException {
+    if (base64EncodedData == null || base64EncodedData.isEmpty()
+        || base64EncodedData.size() > MAX_BATCH_SIZE)
+      throw new KeyPairServiceException(ExceptionType.INVALID_BATCH);
     final var optionalKeyPair = keyPairRepository
         .findKeyPairByOwnerUsernameAndUniqueIdentifier(username, keyUniqueIdentifier);
     if (optionalKeyPair.isEmpty())
       throw new KeyPairServiceException(ExceptionType.KEY_NOT_FOUND);
 
+    final var keyPair = optionalKeyPair.get();
+    final var privateKeyIdentifier = parameterEncryptor.decrypt(keyPair.getPrivateKey(), accessKey);
+    final var messageDigest = getMessageDigest(hashingAlgorithm);
     final var base64Decoder = Base64.getDecoder();
-    final var data = base64Decoder.decode(base64EncodedData);
+    final var base64Encoder = Base64.getEncoder();
 
-    byte[] hashedData;
+    final var signatures = new ArrayList<SignedItem>(base64EncodedData.size());
+    for (final var item : base64EncodedData) {
+      if (item == null) {
+        signatures.add(new SignedItem(null, INVALID_BATCH_ITEM));
+        continue;
+      }
+      try {
+        final var hashedData = hash(messageDigest, base64Decoder.decode(item));
+        final var signature = kNetCommunicationService.sign(privateKeyIdentifier,
+            keyPair.getKeyAlgorithm(), keyPair.getKeyParameter(), hashedData);
+        signatures.add(new SignedItem(base64Encoder.encodeToString(signature), null));
+      } catch (IllegalArgumentException e) {
+        signatures.add(new SignedItem(null, INVALID_BATCH_ITEM));
+      } catch (KNetException e) {
+        signatures.add(new SignedItem(null, e.getMessage()));
+      }
+    }
+    return new BatchSignature(keyPair, signatures);
+  }
+
+  private MessageDigest getMessageDigest(String hashingAlgorithm) {
     try {
-      final var messageDigest =
-          MessageDigest.getInstance(hashingAlgorithm, new BouncyCastleProvider());
-      hashedData = messageDigest.digest(data);
+      return MessageDigest.getInstance(hashingAlgorithm, BouncyCastle.PROVIDER);
     } catch (NoSuchAlgorithmException e) {
-      hashedData = data;
+      return null;
     }
+  }
 
-    final var keyPair = optionalKeyPair.get();
-    final var privateKeyIdentifier = parameterEncryptor.decrypt(keyPair.getPrivateKey(), accessKey);
-    final var signature = kNetCommunicationService.sign(privateKeyIdentifier,
-        keyPair.getKeyAlgorithm(), keyPair.getKeyParameter(), hashedData);
-    final var base64Encoder = Base64.getEncoder();
-    final var base64Signature = base64Encoder.encodeToString(signature);
-
-    return base64Signature;
+  private byte[] hash(MessageDigest messageDigest, byte[] data) {
+    if (messageDigest == null)
+      return data;
+    return messageDigest.digest(data);
   }
 
-  private String generateUniqueIdentifier(String privateKeyIdentifier, String publicKeyIdentifier)
+  String generateUniqueIdentifier(String privateKeyIdentifier, String publicKeyIdentifier)
       throws NoSuchAlgorithmException {
     final var base64Encoder = Base64.getUrlEncoder();
 
@@ -155,6 +531,7 @@ public class KeyPairService {
     final var base64EncodedPublicKey = base64Encoder.encodeToString(encodedPublicKey);
 
     final var publicAndPrivateKeyConcatenation = base64EncodedPublicKey + base64EncodedPrivateKey;
+    final var digest = MessageDigest.getInstance("SHA-256", BouncyCastle.PROVIDER);
     final var digested = digest.digest(publicAndPrivateKeyConcatenation.getBytes());
     final var uniqueIdentifierBytes = Arrays.copyOf(digested, 32);
     final var uniqueIdentifier = base64Encoder.encodeToString(uniqueIdentifierBytes);
@@ -190,33 +567,102 @@ public class KeyPairService {
       throw new KeyPairServiceException(ExceptionType.KEY_NOT_FOUND);
 
     final var keyPair = optionalKeyPair.get();
-    final var algorithm = keyPair.getKeyAlgorithm();
-    final var parameter = keyPair.getKeyParameter();
-    final var publicKeyIdentifier = keyPair.getPublicKey();
-    final var publicKey =
-        kNetCommunicationService.getPublicKey(publicKeyIdentifier, algorithm, parameter);
+    final var publicKey = getCachedPublicKey(keyPair).getPublicKey();
 
     final var data = Base64.getDecoder().decode(base64EncodedData);
     final var signature = Base64.getDecoder().decode(base64EncodedSignature);
 
-    final var signatureVerifier =
-        Signature.getInstance(signatureAlgorithm, new BouncyCastleProvider());
-    signatureVerifier.initVerify(publicKey);
-    signatureVerifier.update(data);
-    return signatureVerifier.verify(signature);
+    return signatureVerifier.verify(publicKey, signatureAlgorithm, data, signature);
   }
 
   public String getPublicKey(String keyIdentifier, String keyAlgorithm, String keyParameter)
       throws KeyPairServiceException, KeyManagerException {
     try {
-      final var publicKey =
-          kNetCommunicationService.getPublicKey(keyIdentifier, keyAlgorithm, keyParameter);
-      final var encodedPublicKey = publicKey.getEncoded();
-      final var base64Encoding = Base64.getEncoder().encodeToString(encodedPublicKey);
-      return base64Encoding;
+      return getCachedPublicKey(keyIdentifier, keyAlgorithm, keyParameter).getBase64Encoding();
     } catch (KNetException | KNetCommunicationServiceException e) {
       throw new KeyPairServiceException();
     }
   }
 
+  public String getEncodedPublicKey(KeyPair keyPair)
+      throws KeyPairServiceException, KeyManagerException {
+    final var encodedPublicKey = keyPair.getEncodedPublicKey();
+    if (encodedPublicKey != null)
+      return encodedPublicKey;
+    return getPublicKey(keyPair.getPublicKey(), keyPair.getKeyAlgorithm(),
+        keyPair.getKeyParameter());
+  }
+
+  public String getEncodedPublicKey(KeyPairSummary keyPair)
+      throws KeyPairServiceException, KeyManagerException {
+    final var encodedPublicKey = keyPair.getEncodedPublicKey();
+    if (encodedPublicKey != null)
+      return encodedPublicKey;
+    return getPublicKey(keyPair.getPublicKey(), keyPair.getKeyAlgorithm(),
+        keyPair.getKeyParameter());
+  }
+
+  /**
+   * Stores the encoded public key of the key pairs created before it was kept in the database.
+   * Key pairs are read {@link #BACKFILL_BATCH_SIZE} at a time, resuming after the last id of the
+   * previous batch, and each batch is written in a short transaction after its public keys are
+   * read from the HSM. Key pairs whose public key can't be read are left for a later run.
+   *
+   * @return the number of key pairs updated
+   */
+  public int backfillEncodedPublicKeys() {
+    var updated = 0;
+    var afterId = 0L;
+    List<KeyPairSummary> keyPairs;
+    do {
+      keyPairs = keyPairRepository.findKeyPairSummaryByEncodedPublicKeyIsNull(afterId,
+          PageRequest.of(0, BACKFILL_BATCH_SIZE));
+      final var encodedPublicKeys = new LinkedHashMap<Long, String>();
+      for (final var keyPair : keyPairs) {
+        try {
+          final var cachedPublicKey = getCachedPublicKey(keyPair.getPublicKey(),
+              keyPair.getKeyAlgorithm(), keyPair.getKeyParameter());
+          encodedPublicKeys.put(keyPair.getId(), cachedPublicKey.getBase64Encoding());
+        } catch (KNetCommunicationServiceException | KeyManagerException | KNetException e) {
+          // left for a later run
+        }
+      }
+      if (!encodedPublicKeys.isEmpty())
+        updated += transactionTemplate.execute(status -> {
+          var batchUpdated = 0;
+          for (final var entry : encodedPublicKeys.entrySet())
+            batchUpdated += keyPairRepository.updateEncodedPublicKey(entry.getKey(),
+                entry.getValue());
+          return batchUpdated;
+        });
+      if (!keyPairs.isEmpty())
+        afterId = keyPairs.get(keyPairs.size() - 1).getId();
+    } while (keyPairs.size() == BACKFILL_BATCH_SIZE);
+    return updated;
+  }
+
+  private CachedPublicKey getCachedPublicKey(KeyPair keyPair) throws InvalidKeyException,
+      KNetCommunicationServiceException, KeyManagerException, KNetException {
+    final var publicKeyIdentifier = keyPair.getPublicKey();
+    final var encodedPublicKey = keyPair.getEncodedPublicKey();
+    if (encodedPublicKey == null)
+      return getCachedPublicKey(publicKeyIdentifier, keyPair.getKeyAlgorithm(),
+          keyPair.getKeyParameter());
+    final var cachedPublicKey = publicKeyCache.get(publicKeyIdentifier);
+    if (cachedPublicKey != null)
+      return cachedPublicKey;
+    return publicKeyCache.putEncoded(publicKeyIdentifier, encodedPublicKey);
+  }
+
+  private CachedPublicKey getCachedPublicKey(String keyIdentifier, String keyAlgorithm,
+      String keyParameter)
+      throws KNetCommunicationServiceException, KeyManagerException, KNetException {
+    final var cachedPublicKey = publicKeyCache.get(keyIdentifier);
+    if (cachedPublicKey != null)
+      return cachedPublicKey;
+    final var publicKey =
+        kNetCommunicationService.getPublicKey(keyIdentifier, keyAlgorithm, keyParameter);
+    return publicKeyCache.put(keyIdentifier, publicKey);
+  }
+
 }
@@ -3,7 +3,7 @@ package br.ufsc.labsec.openpsc.service;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.security.Provider;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,22 +15,38 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.util.Arrays;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 @Service
 public class ParameterEncryptor {
 
-  private static final Provider PROVIDER = new BouncyCastleProvider();
   private static final String ACCESS_KEY_ALGORITHM = "AES";
   private static final String CIPHER_TRANSFORMATION = "AES/CFB/PKCS5Padding";
+  private static final long ACCESS_KEY_CACHE_MAXIMUM_SIZE = 1_000;
+  private static final Duration ACCESS_KEY_CACHE_EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+
+  private final ThreadLocal<Cipher> cipher;
 
-  private final Cipher cipher;
+  /**
+   * Access keys derived from the encrypted access key of a session. Derived keys depend on the
+   * system key, so the cache must be cleared whenever the system key changes. Entries expire a
+   * fixed time after they are derived, so a busy session doesn't keep its key in memory forever.
+   */
+  private final Cache<String, SecretKeySpec> accessKeySpecCache;
 
   public ParameterEncryptor() {
+    this.cipher = ThreadLocal.withInitial(ParameterEncryptor::newCipher);
+    this.accessKeySpecCache = Caffeine.newBuilder().maximumSize(ACCESS_KEY_CACHE_MAXIMUM_SIZE)
+        .expireAfterWrite(ACCESS_KEY_CACHE_EXPIRE_AFTER_WRITE).build();
+  }
+
+  private static Cipher newCipher() {
     try {
-      this.cipher = Cipher.getInstance(CIPHER_TRANSFORMATION, PROVIDER);
+      return Cipher.getInstance(CIPHER_TRANSFORMATION, BouncyCastle.PROVIDER);
     } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
       throw new RuntimeException(e);
     }
@@ -40,6 +56,7 @@ public class ParameterEncryptor {
     try {
       final var accessKeySpec = encryptedAccessKeyToSecretKeySpec(encryptedAccessKey);
       final var iv = ivFromSecretKeySpec(accessKeySpec);
+      final var cipher = this.cipher.get();
       cipher.init(Cipher.ENCRYPT_MODE, accessKeySpec, iv);
       final var encryptedData = cipher.doFinal(dataToEncrypt.getBytes());
       final var base64EncodedEncryptedData = Base64.getEncoder().encodeToString(encryptedData);
@@ -54,6 +71,7 @@ public class ParameterEncryptor {
     try {
       final var accessKeySpec = encryptedAccessKeyToSecretKeySpec(encryptedAccessKey);
       final var iv = ivFromSecretKeySpec(accessKeySpec);
+      final var cipher = this.cipher.get();
       cipher.init(Cipher.DECRYPT_MODE, accessKeySpec, iv);
       final var encryptedData = Base64.getDecoder().decode(base64EncodedEncryptedData);
       final var decryptedDataBytes = cipher.doFinal(encryptedData);
@@ -66,6 +84,10 @@ public class ParameterEncryptor {
   }
 
   private SecretKeySpec encryptedAccessKeyToSecretKeySpec(String encryptedAccessKey) {
+    return accessKeySpecCache.get(encryptedAccessKey, this::deriveSecretKeySpec);
+  }
+
+  private SecretKeySpec deriveSecretKeySpec(String encryptedAccessKey) {
     final var accessKey = decryptKey(encryptedAccessKey);
     final var adjustedAccessKey = adjustKeySize(accessKey);
     final var accessKeySpec = new SecretKeySpec(adjustedAccessKey, ACCESS_KEY_ALGORITHM);
@@ -90,10 +112,20 @@ public class ParameterEncryptor {
     return newKey;
   }
 
+  public void clearAccessKeyCache() {
+    accessKeySpecCache.invalidateAll();
+  }
+
+  long getAccessKeyCacheSize() {
+    accessKeySpecCache.cleanUp();
+    return accessKeySpecCache.estimatedSize();
+  }
+
   public String encryptKey(String key) {
     try {
       final var secretKey = new SecretKeySpec(SystemKey.getKey(), SystemKey.SYSTEM_KEY_ALGORITHM);
       final var iv = ivFromSecretKeySpec(secretKey);
+      final var cipher = this.cipher.get();
       cipher.init(Cipher.ENCRYPT_MODE, secretKey, iv);
       final var encryptedBytes = cipher.doFinal(key.getBytes());
       final var base64Encryption = Base64.getEncoder().encodeToString(encryptedBytes);
@@ -108,6 +140,7 @@ public class ParameterEncryptor {
     try {
       final var secretKey = new SecretKeySpec(SystemKey.getKey(), SystemKey.SYSTEM_KEY_ALGORITHM);
       final var iv = ivFromSecretKeySpec(secretKey);
+      final var cipher = this.cipher.get();
       cipher.init(Cipher.DECRYPT_MODE, secretKey, iv);
       final var encryptedBytes = Base64.getDecoder().decode(encryptedKey);
       final var decryptedBytes = cipher.doFinal(encryptedBytes);
@@ -0,0 +1,244 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import br.ufsc.labsec.openpsc.service.hsm.HsmKeyIdentifiers;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Key pairs generated ahead of time for the most used algorithm and parameter combinations, so
+ * creating a key only binds a pooled pair to its owner. A background task keeps each pool at its
+ * target size while the HSM is configured. Unassigned pairs are only kept in memory, since their
+ * private key identifiers are not encrypted under any owner's access key yet, and are destroyed
+ * on shutdown and when the HSM configuration changes. Their HSM labels start with
+ * {@link #HSM_KEY_NAME_PREFIX}, so pairs left behind by a crash can be found and removed in the
+ * HSM.
+ */
+@Component
+public class PregeneratedKeyPairPool {
+
+  public static final String POOL_SIZE_GAUGE = "openpsc.key.pool.size";
+  public static final String HSM_KEY_NAME_PREFIX = "openpsc-pool-";
+  private static final String SEPARATOR = ":";
+
+  public static class PooledKeyPair {
+
+    private final HsmKeyIdentifiers identifiers;
+    private final String base64EncodedPublicKey;
+    private final long configuration;
+
+    private PooledKeyPair(HsmKeyIdentifiers identifiers, String base64EncodedPublicKey,
+        long configuration) {
+      this.identifiers = identifiers;
+      this.base64EncodedPublicKey = base64EncodedPublicKey;
+      this.configuration = configuration;
+    }
+
+    public HsmKeyIdentifiers getIdentifiers() {
+      return identifiers;
+    }
+
+    public String getBase64EncodedPublicKey() {
+      return base64EncodedPublicKey;
+    }
+
+  }
+
+  private static class Pool {
+
+    private final String keyAlgorithm;
+    private final String keyParameter;
+    private final int targetSize;
+    private final BlockingQueue<PooledKeyPair> keyPairs = new LinkedBlockingQueue<>();
+
+    private Pool(String keyAlgorithm, String keyParameter, int targetSize) {
+      this.keyAlgorithm = keyAlgorithm;
+      this.keyParameter = keyParameter;
+      this.targetSize = targetSize;
+    }
+
+  }
+
+  /**
+   * A change of the HSM configuration, applied once the pool is drained.
+   */
+  @FunctionalInterface
+  public interface HsmReconfiguration {
+
+    void apply() throws KNetException;
+
+  }
+
+  private final KNetCommunicationService kNetCommunicationService;
+  private final PublicKeyCache publicKeyCache;
+  private final long refillIntervalMs;
+  private final Map<String, Pool> pools = new LinkedHashMap<>();
+  private final SecureRandom secureRandom = new SecureRandom();
+  private ScheduledExecutorService filler;
+  private long configuration = 0;
+
+  /**
+   * @param sizes target size of each pool, as a comma separated list of
+   *        {@code algorithm:parameter=size}, such as {@code EC:secp256r1=100,RSA:2048=50}
+   */
+  @Autowired
+  public PregeneratedKeyPairPool(KNetCommunicationService kNetCommunicationService,
+      PublicKeyCache publicKeyCache, MeterRegistry meterRegistry,
+      @Value("${openpsc.key-pool.sizes:}") String sizes,
+      @Value("${openpsc.key-pool.refill-interval-ms:1000}") long refillIntervalMs) {
+    this.kNetCommunicationService = kNetCommunicationService;
+    this.publicKeyCache = publicKeyCache;
+    this.refillIntervalMs = refillIntervalMs;
+    for (final var entry : sizes.split(",")) {
+      if (entry.isBlank())
+        continue;
+      final var parts = entry.trim().split("[:=]");
+      if (parts.length != 3)
+        throw new IllegalArgumentException("Invalid key pool size: " + entry);
+      final var pool = new Pool(parts[0].trim(), parts[1].trim(), Integer.parseInt(parts[2].trim()));
+      pools.put(poolKey(pool.keyAlgorithm, pool.keyParameter), pool);
+      meterRegistry.gaugeCollectionSize(POOL_SIZE_GAUGE,
+          Tags.of("algorithm", pool.keyAlgorithm, "parameter", pool.keyParameter), pool.keyPairs);
+    }
+  }
+
+  private static String poolKey(String keyAlgorithm, String keyParameter) {
+    return keyAlgorithm + SEPARATOR + keyParameter;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (pools.isEmpty())
+      return;
+    filler = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("key-pool-filler-"));
+    filler.scheduleWithFixedDelay(this::fill, 0, refillIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return a pre-generated key pair, or null if there is none for the algorithm and parameter
+   */
+  public PooledKeyPair take(String keyAlgorithm, String keyParameter) {
+    final var pool = pools.get(poolKey(keyAlgorithm, keyParameter));
+    return pool != null ? pool.keyPairs.poll() : null;
+  }
+
+  /**
+   * Returns a key pair from {@link #take} that could not be assigned, so it is used by the next
+   * key creation instead of being destroyed.
+   *
+   * @return false if the HSM configuration changed since the pair was generated, in which case
+   *         the pair is not pooled again
+   */
+  public synchronized boolean giveBack(String keyAlgorithm, String keyParameter,
+      PooledKeyPair pooledKeyPair) {
+    final var pool = pools.get(poolKey(keyAlgorithm, keyParameter));
+    if (pool == null || pooledKeyPair.configuration != configuration)
+      return false;
+    pool.keyPairs.add(pooledKeyPair);
+    return true;
+  }
+
+  public int getSize(String keyAlgorithm, String keyParameter) {
+    final var pool = pools.get(poolKey(keyAlgorithm, keyParameter));
+    return pool != null ? pool.keyPairs.size() : 0;
+  }
+
+  /**
+   * Tops up every pool. Stops at the first failure, which is retried on the next run.
+   */
+  void fill() {
+    if (!kNetCommunicationService.isKnetConfigurationLoaded())
+      return;
+    try {
+      for (final var pool : pools.values())
+        while (pool.keyPairs.size() < pool.targetSize && !Thread.currentThread().isInterrupted())
+          refill(pool);
+    } catch (Exception e) {
+      // the HSM error was already recorded by its metrics, and is retried on the next run
+    }
+  }
+
+  /**
+   * Generates a single key pair, holding the lock so the HSM configuration doesn't change while
+   * the pair is generated and pooled.
+   */
+  private synchronized void refill(Pool pool) throws Exception {
+    if (!kNetCommunicationService.isKnetConfigurationLoaded())
+      throw new IllegalStateException("HSM configuration not loaded");
+    pool.keyPairs.add(generate(pool.keyAlgorithm, pool.keyParameter));
+  }
+
+  private PooledKeyPair generate(String keyAlgorithm, String keyParameter) throws Exception {
+    final var randomName = new byte[32];
+    secureRandom.nextBytes(randomName);
+    final var hsmKeyName = HSM_KEY_NAME_PREFIX + Base64.getEncoder().encodeToString(randomName);
+    final var identifiers =
+        kNetCommunicationService.createKeyPair(keyAlgorithm, keyParameter, hsmKeyName);
+    final var publicKey = kNetCommunicationService
+        .getPublicKey(identifiers.getPublicKeyIdentifier(), keyAlgorithm, keyParameter);
+    final var cachedPublicKey = publicKeyCache.put(identifiers.getPublicKeyIdentifier(), publicKey);
+    return new PooledKeyPair(identifiers, cachedPublicKey.getBase64Encoding(), configuration);
+  }
+
+  /**
+   * Destroys every unassigned key pair with the current HSM configuration and then applies the new
+   * one. The filler waits until the new configuration is in place, so no pair generated with the
+   * old configuration is pooled afterwards. Only pairs removed from the pools here are destroyed,
+   * so a pair that {@link #take} handed out concurrently is never destroyed under its new owner.
+   */
+  public synchronized void reconfigure(HsmReconfiguration reconfiguration) throws KNetException {
+    drain();
+    configuration++;
+    reconfiguration.apply();
+  }
+
+  private void drain() {
+    for (final var pool : pools.values()) {
+      PooledKeyPair pooledKeyPair;
+      while ((pooledKeyPair = pool.keyPairs.poll()) != null) {
+        final var identifiers = pooledKeyPair.getIdentifiers();
+        try {
+          kNetCommunicationService.deleteKeyPair(identifiers.getPrivateKeyIdentifier(),
+              identifiers.getPublicKeyIdentifier(), pool.keyAlgorithm, pool.keyParameter);
+          publicKeyCache.invalidate(identifiers.getPublicKeyIdentifier());
+        } catch (Exception e) {
+          // the key pair is left in the HSM, under the pool label prefix
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops the filler and destroys the key pairs that were never assigned.
+   */
+  @PreDestroy
+  public void destroy() throws InterruptedException {
+    if (filler != null) {
+      filler.shutdownNow();
+      filler.awaitTermination(30, TimeUnit.SECONDS);
+    }
+    synchronized (this) {
+      drain();
+    }
+  }
+
+}
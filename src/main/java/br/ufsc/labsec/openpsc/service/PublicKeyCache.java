@@ -0,0 +1,110 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of decoded public keys, keyed by the HSM public key identifier. Entries are
+ * evicted by size and by age, so a key destroyed outside this application eventually stops being
+ * served. Its hit, miss, eviction and size metrics are exported with the cache name
+ * {@value #CACHE_NAME}.
+ */
+@Component
+public class PublicKeyCache {
+
+  public static final String CACHE_NAME = "publicKeys";
+  private static final long MAXIMUM_SIZE = 10_000;
+  private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(30);
+
+  public static class CachedPublicKey {
+
+    private final PublicKey publicKey;
+    private final String base64Encoding;
+
+    public CachedPublicKey(PublicKey publicKey) {
+      this.publicKey = publicKey;
+      this.base64Encoding = Base64.getEncoder().encodeToString(publicKey.getEncoded());
+    }
+
+    public PublicKey getPublicKey() {
+      return publicKey;
+    }
+
+    public String getBase64Encoding() {
+      return base64Encoding;
+    }
+
+  }
+
+  private final Cache<String, CachedPublicKey> cache = Caffeine.newBuilder()
+      .maximumSize(MAXIMUM_SIZE).expireAfterWrite(EXPIRE_AFTER_WRITE).recordStats().build();
+
+  public PublicKeyCache() {
+  }
+
+  @Autowired
+  public PublicKeyCache(MeterRegistry meterRegistry) {
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+  }
+
+  public CachedPublicKey get(String publicKeyIdentifier) {
+    return cache.getIfPresent(publicKeyIdentifier);
+  }
+
+  public CachedPublicKey put(String publicKeyIdentifier, PublicKey publicKey) {
+    final var cachedPublicKey = new CachedPublicKey(publicKey);
+    cache.put(publicKeyIdentifier, cachedPublicKey);
+    return cachedPublicKey;
+  }
+
+  public CachedPublicKey putEncoded(String publicKeyIdentifier, String base64Encoding)
+      throws InvalidKeyException {
+    try {
+      final var encoded = Base64.getDecoder().decode(base64Encoding);
+      final var algorithm =
+          SubjectPublicKeyInfo.getInstance(encoded).getAlgorithm().getAlgorithm().getId();
+      final var keyFactory = KeyFactory.getInstance(algorithm, BouncyCastle.PROVIDER);
+      final var publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(encoded));
+      return put(publicKeyIdentifier, publicKey);
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException | IllegalArgumentException e) {
+      throw new InvalidKeyException(e);
+    }
+  }
+
+  public void invalidate(String publicKeyIdentifier) {
+    cache.invalidate(publicKeyIdentifier);
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+}
@@ -0,0 +1,41 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies signatures in-process. {@link Signature} instances are not thread-safe, so each thread
+ * keeps its own instance per algorithm and re-initializes it on every verification.
+ */
+@Component
+public class SignatureVerifier {
+
+  private static final ThreadLocal<Map<String, Signature>> SIGNATURES =
+      ThreadLocal.withInitial(HashMap::new);
+
+  public boolean verify(PublicKey publicKey, String signatureAlgorithm, byte[] data,
+      byte[] signature) throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+    final var signatureVerifier = getSignature(signatureAlgorithm);
+    signatureVerifier.initVerify(publicKey);
+    signatureVerifier.update(data);
+    return signatureVerifier.verify(signature);
+  }
+
+  private Signature getSignature(String signatureAlgorithm) throws NoSuchAlgorithmException {
+    final var signatures = SIGNATURES.get();
+    var signature = signatures.get(signatureAlgorithm);
+    if (signature == null) {
+      signature = Signature.getInstance(signatureAlgorithm, BouncyCastle.PROVIDER);
+      signatures.put(signatureAlgorithm, signature);
+    }
+    return signature;
+  }
+
+}
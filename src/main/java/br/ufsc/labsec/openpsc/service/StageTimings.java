@@ -0,0 +1,81 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Time spent by the current request in each processing stage. Collection only happens between
+ * {@link #begin()} and {@link #end()} on the request thread; otherwise {@link #stage(String)}
+ * returns a no-op.
+ */
+public final class StageTimings {
+
+  public interface Stage extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final ThreadLocal<StageTimings> CURRENT = new ThreadLocal<>();
+  private static final Stage NO_OP = () -> {
+  };
+
+  private final Map<String, Long> durationsNs = new LinkedHashMap<>();
+  private final Map<String, Long> startedNs = new LinkedHashMap<>();
+
+  private StageTimings() {}
+
+  public static StageTimings begin() {
+    final var timings = new StageTimings();
+    CURRENT.set(timings);
+    return timings;
+  }
+
+  public static void end() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Times the stage until the returned object is closed.
+   */
+  public static Stage stage(String name) {
+    final var timings = CURRENT.get();
+    if (timings == null)
+      return NO_OP;
+    final var start = System.nanoTime();
+    return () -> timings.add(name, System.nanoTime() - start);
+  }
+
+  /**
+   * Starts a stage whose end is not visible to the caller. It is closed by {@link #finish()}.
+   */
+  public static void start(String name) {
+    final var timings = CURRENT.get();
+    if (timings != null)
+      timings.startedNs.putIfAbsent(name, System.nanoTime());
+  }
+
+  public void add(String name, long durationNs) {
+    durationsNs.merge(name, durationNs, Long::sum);
+  }
+
+  public void finish() {
+    final var now = System.nanoTime();
+    startedNs.forEach((name, start) -> add(name, now - start));
+    startedNs.clear();
+  }
+
+  public Map<String, Long> getDurationsNs() {
+    return durationsNs;
+  }
+
+  /**
+   * @return the durations in the format of the Server-Timing HTTP header
+   */
+  public String toServerTiming() {
+    return durationsNs.entrySet().stream()
+        .map(entry -> String.format("%s;dur=%.3f", entry.getKey(), entry.getValue() / 1e6))
+        .collect(Collectors.joining(", "));
+  }
+
+}
@@ -3,6 +3,7 @@ package br.ufsc.labsec.openpsc.service;
 import java.util.Map;
 
 import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -32,6 +33,15 @@ public class SystemConfigurationService {
   @Autowired
   private ParameterEncryptor parameterEncryptor;
 
+  @Autowired
+  private PublicKeyCache publicKeyCache;
+
+  @Autowired
+  private KeyPairService keyPairService;
+
+  @Autowired
+  private PregeneratedKeyPairPool pregeneratedKeyPairPool;
+
   private boolean systemIsConfigured = false;
 
   public AppUser createAdministratorUser(String username, String password)
@@ -56,7 +66,9 @@ public class SystemConfigurationService {
     final var encryptedParameters =
         parameterEncryptor.encryptKnetParameters(knetParameters, encryptedAccessKey);
     try {
-      kNetCommunicationService.setKnetConfiguration(knetParameters);
+      pregeneratedKeyPairPool
+          .reconfigure(() -> kNetCommunicationService.setKnetConfiguration(knetParameters));
+      publicKeyCache.invalidateAll();
     } catch (KNetException e) {
       throw new SystemServiceException(ExceptionType.INVALID_KNET_CONFIG);
     }
@@ -77,8 +89,14 @@ public class SystemConfigurationService {
     updateSystemConfiguredState();
   }
 
+  @Transactional(TxType.NOT_SUPPORTED)
+  public int backfillEncodedPublicKeys() {
+    return keyPairService.backfillEncodedPublicKeys();
+  }
+
   public void refreshSystemKey() {
     SystemKey.refreshKey();
+    parameterEncryptor.clearAccessKeyCache();
   }
 
   public boolean isSystemConfigured() {
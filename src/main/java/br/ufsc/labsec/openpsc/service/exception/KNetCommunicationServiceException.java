@@ -9,7 +9,8 @@ public class KNetCommunicationServiceException extends Exception {
 
   public enum ExceptionType {
     DEFAULT("KNet configuration not initialized."), MULTIPLE_CONFIGURATIONS(
-        "Multiple KNet configurations registered.");
+        "Multiple KNet configurations registered."), POOL_EXHAUSTED(
+            "Timed out waiting for an available HSM connection.");
 
     private String message;
 
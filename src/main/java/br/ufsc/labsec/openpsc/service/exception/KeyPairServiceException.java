@@ -1,10 +1,20 @@
 package br.ufsc.labsec.openpsc.service.exception;
 
+import br.ufsc.labsec.openpsc.service.KeyPairService;
+
 public class KeyPairServiceException extends Exception {
 
   public enum ExceptionType {
     DEFAULT("Error during key generation."), KEY_NAME_IN_USE(
-        "Key name already in use."), KEY_NOT_FOUND("Key doesn't exist or doesn't belong to user.");
+        "Key name already in use."), KEY_NOT_FOUND("Key doesn't exist or doesn't belong to user."),
+    INVALID_BATCH(
+        "Batch must contain between 1 and " + KeyPairService.MAX_BATCH_SIZE + " items."),
+    JOB_NOT_FOUND("Key generation job doesn't exist or doesn't belong to user."),
+    INVALID_PAGE_SIZE("Page size must be between 1 and 1000."),
+    INVALID_CONTINUATION_TOKEN("Invalid continuation token."),
+    UNSUPPORTED_DIGEST_ALGORITHM("Digest algorithm OID not supported."),
+    INVALID_DIGEST("Digest is not valid Base64 or its length doesn't match the algorithm."),
+    UNSUPPORTED_HASHING_ALGORITHM("Hashing algorithm not supported.");
 
     private String message;
 
@@ -0,0 +1,34 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import java.security.PublicKey;
+import java.util.Map;
+
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.valueobject.crypto.keys.KeyManagerException;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+
+/**
+ * Key operations performed by the HSM. Operations throw {@link KNetCommunicationServiceException}
+ * while the backend is not configured.
+ */
+public interface HsmBackend {
+
+  void configure(Map<String, String> parameters) throws KNetException;
+
+  void unload();
+
+  boolean isConfigured();
+
+  HsmKeyIdentifiers createKeyPair(String keyAlgorithm, String keyParameter, String keyName)
+      throws KNetCommunicationServiceException, KNetException;
+
+  byte[] sign(String privateKeyIdentifier, String keyAlgorithm, String keyParameter, byte[] data)
+      throws KNetCommunicationServiceException, KNetException;
+
+  void deleteKeyPair(String privateKeyIdentifier, String publicKeyIdentifier)
+      throws KNetCommunicationServiceException, KNetException;
+
+  PublicKey getPublicKey(String publicKeyIdentifier, String keyAlgorithm, String keyParameter)
+      throws KNetCommunicationServiceException, KeyManagerException, KNetException;
+
+}
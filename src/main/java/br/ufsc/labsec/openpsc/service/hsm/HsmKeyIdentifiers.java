@@ -0,0 +1,21 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+public class HsmKeyIdentifiers {
+
+  private final String privateKeyIdentifier;
+  private final String publicKeyIdentifier;
+
+  public HsmKeyIdentifiers(String privateKeyIdentifier, String publicKeyIdentifier) {
+    this.privateKeyIdentifier = privateKeyIdentifier;
+    this.publicKeyIdentifier = publicKeyIdentifier;
+  }
+
+  public String getPrivateKeyIdentifier() {
+    return privateKeyIdentifier;
+  }
+
+  public String getPublicKeyIdentifier() {
+    return publicKeyIdentifier;
+  }
+
+}
@@ -0,0 +1,102 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import br.ufsc.labsec.openpsc.entity.enums.KeyAlgorithmEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers, error counters and in-flight gauges of HSM operations, tagged by operation, key
+ * algorithm and key parameter. The key algorithm and parameter come from requests, so values
+ * outside {@link KeyAlgorithmEnum} and {@link #KNOWN_PARAMETERS} are tagged as {@code other},
+ * keeping the number of meters bounded.
+ */
+@Component
+public class HsmMetrics {
+
+  public static final String OPERATION_TIMER = "openpsc.hsm.operation";
+  public static final String OPERATION_ERRORS = "openpsc.hsm.operation.errors";
+  public static final String OPERATIONS_IN_FLIGHT = "openpsc.hsm.operation.in.flight";
+  private static final String UNKNOWN = "unknown";
+  private static final String OTHER = "other";
+  private static final Map<KeyAlgorithmEnum, List<String>> KNOWN_PARAMETERS = Map.of(
+      KeyAlgorithmEnum.RSA, List.of("1024", "2048", "3072", "4096", "8192"),
+      KeyAlgorithmEnum.EC, List.of("secp256r1", "secp384r1", "secp521r1", "secp256k1",
+          "brainpoolP256r1", "brainpoolP384r1", "brainpoolP512r1"),
+      KeyAlgorithmEnum.EDDSA, List.of("Ed25519", "Ed448"));
+
+  /**
+   * Measures one operation. The operation is recorded as an error unless {@link #success()} is
+   * called before the sample is closed.
+   */
+  public class Sample implements AutoCloseable {
+
+    private final Tags tags;
+    private final AtomicInteger inFlight;
+    private final Timer.Sample timerSample;
+    private boolean success = false;
+
+    private Sample(Tags tags) {
+      this.tags = tags;
+      this.inFlight = inFlightGauges.computeIfAbsent(tags,
+          key -> meterRegistry.gauge(OPERATIONS_IN_FLIGHT, key, new AtomicInteger()));
+      this.inFlight.incrementAndGet();
+      this.timerSample = Timer.start(meterRegistry);
+    }
+
+    public void success() {
+      success = true;
+    }
+
+    @Override
+    public void close() {
+      inFlight.decrementAndGet();
+      final var outcome = success ? "success" : "error";
+      timerSample.stop(Timer.builder(OPERATION_TIMER).tags(tags).tag("outcome", outcome)
+          .publishPercentileHistogram().register(meterRegistry));
+      if (!success)
+        Counter.builder(OPERATION_ERRORS).tags(tags).register(meterRegistry).increment();
+    }
+
+  }
+
+  private final MeterRegistry meterRegistry;
+  private final Map<Tags, AtomicInteger> inFlightGauges = new ConcurrentHashMap<>();
+
+  public HsmMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  public Sample start(String operation, String keyAlgorithm, String keyParameter) {
+    final var algorithm = toKeyAlgorithm(keyAlgorithm);
+    return new Sample(Tags.of("operation", operation, "algorithm",
+        keyAlgorithm == null ? UNKNOWN : algorithm != null ? algorithm.toString() : OTHER,
+        "parameter", keyParameter == null ? UNKNOWN : toParameterTag(algorithm, keyParameter)));
+  }
+
+  private static KeyAlgorithmEnum toKeyAlgorithm(String keyAlgorithm) {
+    if (keyAlgorithm == null)
+      return null;
+    for (final var algorithm : KeyAlgorithmEnum.values())
+      if (algorithm.toString().equalsIgnoreCase(keyAlgorithm))
+        return algorithm;
+    return null;
+  }
+
+  private static String toParameterTag(KeyAlgorithmEnum algorithm, String keyParameter) {
+    if (algorithm != null)
+      for (final var parameter : KNOWN_PARAMETERS.get(algorithm))
+        if (parameter.equalsIgnoreCase(keyParameter))
+          return parameter;
+    return OTHER;
+  }
+
+}
@@ -0,0 +1,160 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.valueobject.crypto.KNetRequester;
+import br.ufsc.labsec.valueobject.crypto.keys.KeyManagerException;
+import br.ufsc.labsec.valueobject.crypto.keys.knet.KNetKeyTranslator;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+import br.ufsc.labsec.valueobject.kmip.KkmipClientBuilder;
+import br.ufsc.labsec.valueobject.util.KeyType;
+
+/**
+ * {@link HsmBackend} for a Kryptus HSM, reached through a pool of {@link KNetRequester}s.
+ */
+@Component
+@Profile("!" + SimulatedHsmBackend.PROFILE)
+public class KNetHsmBackend implements HsmBackend {
+
+  /**
+   * Optional KNet parameter with the number of pooled HSM clients. Defaults to MAX_CONNECTIONS,
+   * with each pooled client limited to a single connection, so the HSM connection limit is kept.
+   */
+  public static final String POOL_SIZE_PARAMETER = "POOL_SIZE";
+  /**
+   * Optional KNet parameter with how long a request waits for a pooled HSM client.
+   */
+  public static final String POOL_CHECKOUT_TIMEOUT_PARAMETER = "POOL_CHECKOUT_TIMEOUT_MS";
+  private static final String MAX_CONNECTIONS_PARAMETER = "MAX_CONNECTIONS";
+  private static final long DEFAULT_POOL_CHECKOUT_TIMEOUT_MS = 30_000;
+
+  private volatile KNetRequesterPool kNetRequesterPool = null;
+  private final Map<KNetRequester, Object> kmipClients = new ConcurrentHashMap<>();
+
+  static {
+    final var props = System.getProperties();
+    props.setProperty("jdk.internal.httpclient.disableHostnameVerification",
+        Boolean.TRUE.toString());
+  }
+
+  @Override
+  public HsmKeyIdentifiers createKeyPair(String keyAlgorithm, String keyParameter,
+      String keyName) throws KNetCommunicationServiceException, KNetException {
+    final var keyIdentifierPair = getPool().execute(
+        kNetRequester -> kNetRequester.generateKeyPair(KeyType.build(keyAlgorithm, keyParameter),
+            keyParameter, keyName + "-private", keyName + "-public"));
+    return new HsmKeyIdentifiers(keyIdentifierPair.getPrivateKeyIdentifier(),
+        keyIdentifierPair.getPublicKeyIdentifier());
+  }
+
+  @Override
+  public byte[] sign(String privateKeyIdentifier, String keyAlgorithm, String keyParameter,
+      byte[] data) throws KNetCommunicationServiceException, KNetException {
+    final var signature = getPool().execute(kNetRequester -> kNetRequester
+        .sign(privateKeyIdentifier, KeyType.build(keyAlgorithm, keyParameter), data));
+    return signature;
+  }
+
+  @Override
+  public void deleteKeyPair(String privateKeyIdentifier, String publicKeyIdentifier)
+      throws KNetCommunicationServiceException, KNetException {
+    getPool().execute(kNetRequester -> {
+      kNetRequester.revokeAndDestroy(new String[] {privateKeyIdentifier, publicKeyIdentifier});
+      return null;
+    });
+  }
+
+  @Override
+  public PublicKey getPublicKey(String publicKeyIdentifier, String keyAlgorithm,
+      String keyParameter)
+      throws KNetCommunicationServiceException, KeyManagerException, KNetException {
+    final var publicKey = getPool().execute(kNetRequester -> kNetRequester
+        .getPublicKey(publicKeyIdentifier, KeyType.build(keyAlgorithm, keyParameter)));
+    return new KNetKeyTranslator().buildJavaPublicKey(publicKey,
+        KeyType.build(keyAlgorithm, keyParameter));
+  }
+
+  @Override
+  public void configure(Map<String, String> parameters) throws KNetException {
+    final var clientParameters = new HashMap<String, String>(parameters);
+    final var poolSizeParameter = clientParameters.remove(POOL_SIZE_PARAMETER);
+    final var checkoutTimeoutParameter = clientParameters.remove(POOL_CHECKOUT_TIMEOUT_PARAMETER);
+    final KNetRequesterPool pool;
+    try {
+      final int poolSize;
+      if (poolSizeParameter != null)
+        poolSize = Integer.parseInt(poolSizeParameter);
+      else if (clientParameters.containsKey(MAX_CONNECTIONS_PARAMETER)) {
+        poolSize = Integer.parseInt(clientParameters.get(MAX_CONNECTIONS_PARAMETER));
+        clientParameters.put(MAX_CONNECTIONS_PARAMETER, "1");
+      } else
+        poolSize = 1;
+      final var checkoutTimeoutMs = checkoutTimeoutParameter != null
+          ? Long.parseLong(checkoutTimeoutParameter)
+          : DEFAULT_POOL_CHECKOUT_TIMEOUT_MS;
+      pool = new KNetRequesterPool(() -> {
+        final var kmipClient = KkmipClientBuilder.build(null, null, clientParameters);
+        final var kNetRequester = new KNetRequester(kmipClient, clientParameters.get("USERNAME"),
+            clientParameters.get("PW"));
+        kmipClients.put(kNetRequester, kmipClient);
+        return kNetRequester;
+      }, this::closeKmipClient, poolSize, checkoutTimeoutMs);
+    } catch (IllegalArgumentException e) {
+      throw new KNetException("Invalid HSM connection pool parameters.", e);
+    }
+    pool.warmUp();
+    replacePool(pool);
+  }
+
+  @Override
+  public void unload() {
+    replacePool(null);
+  }
+
+  synchronized void replacePool(KNetRequesterPool pool) {
+    final var previousPool = kNetRequesterPool;
+    kNetRequesterPool = pool;
+    if (previousPool != null)
+      previousPool.close();
+  }
+
+  /**
+   * Closes the KMIP client of a requester dropped by the pool, when the client supports it.
+   */
+  private void closeKmipClient(KNetRequester kNetRequester) {
+    final var kmipClient = kmipClients.remove(kNetRequester);
+    if (kmipClient instanceof AutoCloseable)
+      try {
+        ((AutoCloseable) kmipClient).close();
+      } catch (Exception e) {
+        // the connection is left for the HSM to time out
+      }
+  }
+
+  @Override
+  public boolean isConfigured() {
+    return kNetRequesterPool != null;
+  }
+
+  /**
+   * @param kNetRequester the kNetRequester to use for every operation
+   */
+  public void setkNetRequester(KNetRequester kNetRequester) {
+    replacePool(new KNetRequesterPool(() -> kNetRequester, 1, DEFAULT_POOL_CHECKOUT_TIMEOUT_MS));
+  }
+
+  private KNetRequesterPool getPool() throws KNetCommunicationServiceException {
+    final var pool = kNetRequesterPool;
+    if (pool == null)
+      throw new KNetCommunicationServiceException();
+    return pool;
+  }
+
+}
@@ -0,0 +1,162 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException.ExceptionType;
+import br.ufsc.labsec.valueobject.crypto.KNetRequester;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+
+/**
+ * Fixed-size pool of {@link KNetRequester}s, so concurrent requests are dispatched to the HSM in
+ * parallel. Requesters are created on demand up to the pool size and returned to the pool after
+ * each operation. A requester whose operation fails with an unchecked exception is considered
+ * broken and is discarded; a new one is built on a later checkout. A {@link KNetException} caused
+ * by an I/O error means the HSM connection was lost, so the requester and every idle one are
+ * discarded, as they were connected to the same HSM. Other {@link KNetException}s are rejections
+ * of the request itself and keep the requester. Discarded requesters are handed to the
+ * {@link KNetRequesterCloser}, as are the idle ones once the pool is {@link #close closed}.
+ */
+public class KNetRequesterPool {
+
+  @FunctionalInterface
+  public interface KNetRequesterFactory {
+    KNetRequester create() throws KNetException;
+  }
+
+  @FunctionalInterface
+  public interface KNetRequesterCloser {
+    void close(KNetRequester kNetRequester);
+  }
+
+  @FunctionalInterface
+  public interface KNetOperation<T> {
+    T execute(KNetRequester kNetRequester) throws KNetException;
+  }
+
+  private final KNetRequesterFactory factory;
+  private final KNetRequesterCloser closer;
+  private final int size;
+  private final long checkoutTimeoutMs;
+  private final Semaphore permits;
+  private final BlockingQueue<KNetRequester> idleRequesters;
+  private volatile boolean closed = false;
+
+  public KNetRequesterPool(KNetRequesterFactory factory, int size, long checkoutTimeoutMs) {
+    this(factory, kNetRequester -> {
+    }, size, checkoutTimeoutMs);
+  }
+
+  public KNetRequesterPool(KNetRequesterFactory factory, KNetRequesterCloser closer, int size,
+      long checkoutTimeoutMs) {
+    if (size < 1)
+      throw new IllegalArgumentException("Pool size must be at least 1.");
+    this.factory = factory;
+    this.closer = closer;
+    this.size = size;
+    this.checkoutTimeoutMs = checkoutTimeoutMs;
+    this.permits = new Semaphore(size, true);
+    this.idleRequesters = new LinkedBlockingQueue<>(size);
+  }
+
+  public <T> T execute(KNetOperation<T> operation)
+      throws KNetCommunicationServiceException, KNetException {
+    final var kNetRequester = checkout();
+    var healthy = false;
+    try {
+      final var result = operation.execute(kNetRequester);
+      healthy = true;
+      return result;
+    } catch (KNetException e) {
+      healthy = !isConnectionFailure(e);
+      if (!healthy)
+        closeIdleRequesters();
+      throw e;
+    } finally {
+      release(kNetRequester, healthy);
+    }
+  }
+
+  private static boolean isConnectionFailure(KNetException e) {
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+      if (cause instanceof IOException)
+        return true;
+    return false;
+  }
+
+  /**
+   * Creates one requester up front, so an invalid configuration is reported immediately.
+   */
+  public void warmUp() throws KNetException {
+    idleRequesters.offer(factory.create());
+  }
+
+  private KNetRequester checkout() throws KNetCommunicationServiceException, KNetException {
+    try {
+      if (!permits.tryAcquire(checkoutTimeoutMs, TimeUnit.MILLISECONDS))
+        throw new KNetCommunicationServiceException(ExceptionType.POOL_EXHAUSTED);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new KNetCommunicationServiceException(ExceptionType.POOL_EXHAUSTED);
+    }
+    final var idleRequester = idleRequesters.poll();
+    if (idleRequester != null)
+      return idleRequester;
+    try {
+      return factory.create();
+    } catch (KNetException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  private void release(KNetRequester kNetRequester, boolean healthy) {
+    if (healthy && !closed && idleRequesters.offer(kNetRequester)) {
+      // close() may have drained the idle requesters before this one was offered
+      if (closed)
+        closeIdleRequesters();
+    } else
+      closeRequester(kNetRequester);
+    permits.release();
+  }
+
+  /**
+   * Closes the idle requesters, and every requester in use once its operation ends. Used when the
+   * pool is replaced, so the connections of the old configuration don't outlive it.
+   */
+  public void close() {
+    closed = true;
+    closeIdleRequesters();
+  }
+
+  private void closeIdleRequesters() {
+    KNetRequester kNetRequester;
+    while ((kNetRequester = idleRequesters.poll()) != null)
+      closeRequester(kNetRequester);
+  }
+
+  private void closeRequester(KNetRequester kNetRequester) {
+    try {
+      closer.close(kNetRequester);
+    } catch (RuntimeException e) {
+      // the requester is dropped either way
+    }
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getAvailableCount() {
+    return permits.availablePermits();
+  }
+
+  public int getIdleCount() {
+    return idleRequesters.size();
+  }
+
+}
@@ -0,0 +1,203 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.DigestInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import br.ufsc.labsec.openpsc.service.BouncyCastle;
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+
+/**
+ * In-process {@link HsmBackend} backed by BouncyCastle software keys, for load tests and
+ * environments without a Kryptus HSM. Keys live only in memory. Each operation waits for a
+ * configurable latency and fails with a configurable probability, to approximate a real HSM.
+ * Enabled by the {@value #PROFILE} Spring profile.
+ */
+@Component
+@Profile(SimulatedHsmBackend.PROFILE)
+public class SimulatedHsmBackend implements HsmBackend {
+
+  public static final String PROFILE = "hsm-simulator";
+
+  private final long signLatencyMs;
+  private final long keyGenerationLatencyMs;
+  private final long latencyJitterMs;
+  private final double errorRate;
+
+  private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+  private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+  private volatile boolean configured = false;
+
+  public SimulatedHsmBackend(@Value("${hsm.simulator.sign-latency-ms:5}") long signLatencyMs,
+      @Value("${hsm.simulator.key-generation-latency-ms:50}") long keyGenerationLatencyMs,
+      @Value("${hsm.simulator.latency-jitter-ms:0}") long latencyJitterMs,
+      @Value("${hsm.simulator.error-rate:0}") double errorRate) {
+    this.signLatencyMs = signLatencyMs;
+    this.keyGenerationLatencyMs = keyGenerationLatencyMs;
+    this.latencyJitterMs = latencyJitterMs;
+    this.errorRate = errorRate;
+  }
+
+  @Override
+  public void configure(Map<String, String> parameters) {
+    configured = true;
+  }
+
+  @Override
+  public void unload() {
+    configured = false;
+  }
+
+  @Override
+  public boolean isConfigured() {
+    return configured;
+  }
+
+  @Override
+  public HsmKeyIdentifiers createKeyPair(String keyAlgorithm, String keyParameter,
+      String keyName) throws KNetCommunicationServiceException, KNetException {
+    simulate(keyGenerationLatencyMs);
+    final KeyPair keyPair;
+    try {
+      keyPair = generateKeyPair(keyAlgorithm, keyParameter);
+    } catch (GeneralSecurityException | IllegalArgumentException e) {
+      throw new KNetException("Unsupported key: " + keyAlgorithm + " " + keyParameter, e);
+    }
+    final var privateKeyIdentifier = UUID.randomUUID().toString();
+    final var publicKeyIdentifier = UUID.randomUUID().toString();
+    privateKeys.put(privateKeyIdentifier, keyPair.getPrivate());
+    publicKeys.put(publicKeyIdentifier, keyPair.getPublic());
+    return new HsmKeyIdentifiers(privateKeyIdentifier, publicKeyIdentifier);
+  }
+
+  @Override
+  public byte[] sign(String privateKeyIdentifier, String keyAlgorithm, String keyParameter,
+      byte[] data) throws KNetCommunicationServiceException, KNetException {
+    simulate(signLatencyMs);
+    final var privateKey = privateKeys.get(privateKeyIdentifier);
+    if (privateKey == null)
+      throw new KNetException("Key not found: " + privateKeyIdentifier, null);
+    try {
+      return sign(privateKey, keyAlgorithm, keyParameter, data);
+    } catch (GeneralSecurityException | IOException e) {
+      throw new KNetException("Signature failed.", e);
+    }
+  }
+
+  @Override
+  public void deleteKeyPair(String privateKeyIdentifier, String publicKeyIdentifier)
+      throws KNetCommunicationServiceException, KNetException {
+    simulate(signLatencyMs);
+    privateKeys.remove(privateKeyIdentifier);
+    publicKeys.remove(publicKeyIdentifier);
+  }
+
+  @Override
+  public PublicKey getPublicKey(String publicKeyIdentifier, String keyAlgorithm,
+      String keyParameter) throws KNetCommunicationServiceException, KNetException {
+    simulate(signLatencyMs);
+    final var publicKey = publicKeys.get(publicKeyIdentifier);
+    if (publicKey == null)
+      throw new KNetException("Key not found: " + publicKeyIdentifier, null);
+    return publicKey;
+  }
+
+  private void simulate(long latencyMs) throws KNetCommunicationServiceException, KNetException {
+    if (!configured)
+      throw new KNetCommunicationServiceException();
+    final var random = ThreadLocalRandom.current();
+    final var jitterMs =
+        latencyJitterMs > 0 ? random.nextLong(-latencyJitterMs, latencyJitterMs + 1) : 0;
+    final var sleepMs = Math.max(0, latencyMs + jitterMs);
+    if (sleepMs > 0) {
+      try {
+        Thread.sleep(sleepMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new KNetException("Interrupted.", e);
+      }
+    }
+    if (errorRate > 0 && random.nextDouble() < errorRate)
+      throw new KNetException("Simulated HSM failure.", null);
+  }
+
+  private static KeyPair generateKeyPair(String keyAlgorithm, String keyParameter)
+      throws GeneralSecurityException {
+    final var algorithm = keyAlgorithm.toUpperCase();
+    if (algorithm.equals("RSA")) {
+      final var keyPairGenerator = KeyPairGenerator.getInstance("RSA", BouncyCastle.PROVIDER);
+      keyPairGenerator.initialize(Integer.parseInt(keyParameter));
+      return keyPairGenerator.generateKeyPair();
+    }
+    if (algorithm.equals("EC") || algorithm.equals("ECDSA")) {
+      final var keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastle.PROVIDER);
+      keyPairGenerator.initialize(new ECGenParameterSpec(keyParameter));
+      return keyPairGenerator.generateKeyPair();
+    }
+    if (algorithm.equals("EDDSA"))
+      return KeyPairGenerator.getInstance(keyParameter, BouncyCastle.PROVIDER).generateKeyPair();
+    throw new IllegalArgumentException(keyAlgorithm);
+  }
+
+  /**
+   * Signs the way the HSM does for pre-hashed data: RSA signs the PKCS#1 DigestInfo of the hash,
+   * ECDSA signs the hash itself and EdDSA signs the given bytes.
+   */
+  private static byte[] sign(PrivateKey privateKey, String keyAlgorithm, String keyParameter,
+      byte[] data) throws GeneralSecurityException, IOException {
+    final var algorithm = keyAlgorithm.toUpperCase();
+    final Signature signature;
+    var toBeSigned = data;
+    if (algorithm.equals("RSA")) {
+      signature = Signature.getInstance("NONEwithRSA", BouncyCastle.PROVIDER);
+      final var digestAlgorithm = digestAlgorithmByLength(data.length);
+      if (digestAlgorithm != null)
+        toBeSigned = new DigestInfo(new AlgorithmIdentifier(digestAlgorithm, DERNull.INSTANCE),
+            data).getEncoded();
+    } else if (algorithm.equals("EC") || algorithm.equals("ECDSA"))
+      signature = Signature.getInstance("NONEwithECDSA", BouncyCastle.PROVIDER);
+    else
+      signature = Signature.getInstance(keyParameter, BouncyCastle.PROVIDER);
+    signature.initSign(privateKey);
+    signature.update(toBeSigned);
+    return signature.sign();
+  }
+
+  private static ASN1ObjectIdentifier digestAlgorithmByLength(int length) {
+    switch (length) {
+      case 20:
+        return OIWObjectIdentifiers.idSHA1;
+      case 28:
+        return NISTObjectIdentifiers.id_sha224;
+      case 32:
+        return NISTObjectIdentifiers.id_sha256;
+      case 48:
+        return NISTObjectIdentifiers.id_sha384;
+      case 64:
+        return NISTObjectIdentifiers.id_sha512;
+      default:
+        return null;
+    }
+  }
+
+}
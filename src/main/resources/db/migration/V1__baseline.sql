@@ -0,0 +1,61 @@
+-- Schema before versioned migrations. Existing databases are baselined at this version.
+
+create table app_user (
+    id bigint not null,
+    authority integer not null,
+    password varchar(255) not null,
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table hibernate_sequence (
+    next_val bigint
+) engine=InnoDB;
+
+insert into hibernate_sequence values (1);
+
+create table key_pair (
+    id bigint not null,
+    key_algorithm varchar(255) not null,
+    key_name varchar(255) not null,
+    key_parameter varchar(255) not null,
+    private_key text not null,
+    public_key text not null,
+    unique_identifier varchar(255) not null,
+    owner_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table keypair_sequence (
+    next_val bigint
+) engine=InnoDB;
+
+insert into keypair_sequence values (1);
+
+create table knet_configuration (
+    id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table knet_configuration_encrypted_parameters (
+    knet_configuration_id bigint not null,
+    value varchar(255),
+    name varchar(255) not null,
+    primary key (knet_configuration_id, name)
+) engine=InnoDB;
+
+alter table app_user
+    add constraint UK_3k4cplvh82srueuttfkwnylq0 unique (username);
+
+alter table key_pair
+    add constraint UK_odal7dpop1qsjcgiaxfj12afb unique (unique_identifier);
+
+alter table key_pair
+    add constraint FKcl341gqeyjs4d9h1ryttx7c6g
+    foreign key (owner_id)
+    references app_user (id);
+
+alter table knet_configuration_encrypted_parameters
+    add constraint FKj28vcrya3g8ubteya7l9cki75
+    foreign key (knet_configuration_id)
+    references knet_configuration (id);
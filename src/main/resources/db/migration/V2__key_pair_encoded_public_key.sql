@@ -0,0 +1,5 @@
+-- Encoded public key stored with the key pair, so it doesn't have to be fetched from the HSM.
+-- Rows created before this version are filled in by the public key backfill.
+
+alter table key_pair
+    add column encoded_public_key text;
@@ -0,0 +1,5 @@
+-- Key names are unique per owner. The constraint's index, led by owner_id, also serves the
+-- lookups of a user's keys by name and the listing of a user's keys.
+
+alter table key_pair
+    add constraint uk_key_pair_owner_key_name unique (owner_id, key_name);
@@ -0,0 +1,6 @@
+-- Key listings page through a user's keys in id order, starting after the last id of the
+-- previous page. Once V3 adds the (owner_id, key_name) unique key, MySQL no longer keeps a
+-- separate index for the owner_id foreign key, so without this index each page reads and sorts
+-- all of the owner's keys.
+
+create index idx_key_pair_owner_id on key_pair (owner_id, id);
@@ -0,0 +1,59 @@
+package br.ufsc.labsec.openpsc.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+public class TestDataSourceConfiguration {
+
+  private static final String CONNECTION = "\"url\": \"jdbc:mysql://localhost:3306/psc\", "
+      + "\"username\": \"user\", \"password\": \"password\"";
+
+  private JsonObject parse(String json) {
+    return new Gson().fromJson(json, JsonObject.class);
+  }
+
+  @Test
+  public void createPoolConfiguration_defaults() {
+    final var config =
+        DataSourceConfiguration.createPoolConfiguration(parse("{" + CONNECTION + "}"));
+
+    assertEquals("jdbc:mysql://localhost:3306/psc", config.getJdbcUrl());
+    assertEquals("user", config.getUsername());
+    assertEquals("password", config.getPassword());
+    assertEquals(DataSourceConfiguration.POOL_NAME, config.getPoolName());
+    assertEquals("true", config.getDataSourceProperties().get("cachePrepStmts"));
+    assertEquals("true", config.getDataSourceProperties().get("useServerPrepStmts"));
+    assertEquals("true", config.getDataSourceProperties().get("rewriteBatchedStatements"));
+  }
+
+  @Test
+  public void createPoolConfiguration_pool() {
+    final var config = DataSourceConfiguration.createPoolConfiguration(parse("{" + CONNECTION
+        + ", \"pool\": {\"maximumPoolSize\": 40, \"minimumIdle\": 5, "
+        + "\"connectionTimeoutMs\": 2000, \"idleTimeoutMs\": 120000, "
+        + "\"maxLifetimeMs\": 900000, \"leakDetectionThresholdMs\": 10000}}"));
+
+    assertEquals(40, config.getMaximumPoolSize());
+    assertEquals(5, config.getMinimumIdle());
+    assertEquals(2000, config.getConnectionTimeout());
+    assertEquals(120000, config.getIdleTimeout());
+    assertEquals(900000, config.getMaxLifetime());
+    assertEquals(10000, config.getLeakDetectionThreshold());
+  }
+
+  @Test
+  public void createPoolConfiguration_dataSourceProperties() {
+    final var config = DataSourceConfiguration.createPoolConfiguration(parse("{" + CONNECTION
+        + ", \"dataSourceProperties\": {\"useServerPrepStmts\": false, "
+        + "\"prepStmtCacheSize\": \"500\"}}"));
+
+    assertEquals("false", config.getDataSourceProperties().get("useServerPrepStmts"));
+    assertEquals("500", config.getDataSourceProperties().get("prepStmtCacheSize"));
+    assertEquals("true", config.getDataSourceProperties().get("cachePrepStmts"));
+  }
+
+}
@@ -1,15 +1,29 @@
 package br.ufsc.labsec.openpsc.controller;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,23 +32,33 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import br.ufsc.labsec.openpsc.data.request.DigestSignatureRequest;
 import br.ufsc.labsec.openpsc.data.request.KeyPairGenerationRequest;
+import br.ufsc.labsec.openpsc.data.request.SignatureBatchRequest;
 import br.ufsc.labsec.openpsc.data.request.SignatureRequest;
 import br.ufsc.labsec.openpsc.data.request.SignatureVerificationRequest;
 import br.ufsc.labsec.openpsc.data.response.ErrorMessageResponse;
+import br.ufsc.labsec.openpsc.data.response.KeyGenerationJobResponse;
 import br.ufsc.labsec.openpsc.data.response.KeyResponse;
+import br.ufsc.labsec.openpsc.data.response.SignatureBatchResponse;
 import br.ufsc.labsec.openpsc.data.response.SignatureResponse;
 import br.ufsc.labsec.openpsc.data.response.SignatureVerificationResponse;
 import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary;
 import br.ufsc.labsec.openpsc.service.AppUserService;
 import br.ufsc.labsec.openpsc.service.JWTManager;
+import br.ufsc.labsec.openpsc.service.KeyGenerationJobService;
+import br.ufsc.labsec.openpsc.service.KeyGenerationJobService.KeyGenerationJob;
 import br.ufsc.labsec.openpsc.service.KeyPairService;
+import br.ufsc.labsec.openpsc.service.KeyPairService.KeyPairExportHandler;
+import br.ufsc.labsec.openpsc.service.KeyPairService.KeyPairPage;
 import br.ufsc.labsec.openpsc.service.ParameterEncryptor;
 import br.ufsc.labsec.openpsc.service.SystemConfigurationService;
 import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException;
@@ -49,6 +73,9 @@ public class TestKeyPairController {
   @MockBean
   private KeyPairService keyPairService;
 
+  @MockBean
+  private KeyGenerationJobService keyGenerationJobService;
+
   @MockBean
   private AppUserService appUserService;
 
@@ -146,6 +173,101 @@ public class TestKeyPairController {
     assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
   }
 
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void createKeyPair_async_success() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new KeyPairGenerationRequest("RSA", "4096", "my_key");
+    final var job = new KeyGenerationJob("job", "test");
+    when(keyGenerationJobService.submit(any(), any(), any(), any(), any())).thenReturn(job);
+
+    final var mvcResult = mockMvc.perform(post("/key").param("async", "true")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(requestBody))).andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), KeyGenerationJobResponse.class);
+    assertEquals(HttpStatus.ACCEPTED.value(), response.getStatus());
+    assertEquals("http://localhost/key/jobs/job", response.getHeader("Location"));
+    assertEquals("job", responseBody.getJobIdentifier());
+    assertEquals(KeyGenerationJobService.Status.PENDING.name(), responseBody.getStatus());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void createKeyPair_async_fail_503() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new KeyPairGenerationRequest("RSA", "4096", "my_key");
+    when(keyGenerationJobService.submit(any(), any(), any(), any(), any()))
+        .thenThrow(new RejectedExecutionException());
+
+    final var mvcResult = mockMvc.perform(post("/key").param("async", "true")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(requestBody))).andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), ErrorMessageResponse.class);
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+    assertEquals(KeyGenerationJobService.QUEUE_FULL, responseBody.getError());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void getKeyGenerationJob_completed() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var job = new KeyGenerationJob("job", "test");
+    final var keyPair = new KeyPair();
+    keyPair.setUniqueIdentifier("key");
+    job.getResult().complete(keyPair);
+    when(keyGenerationJobService.getJob("test", "job")).thenReturn(job);
+
+    final var mvcResult = mockMvc.perform(get("/key/jobs/job")).andReturn();
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), KeyGenerationJobResponse.class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(KeyGenerationJobService.Status.COMPLETED.name(), responseBody.getStatus());
+    assertEquals("key", responseBody.getKeyPairUniqueIdentifier());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void getKeyGenerationJob_longPoll() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var job = new KeyGenerationJob("job", "test");
+    when(keyGenerationJobService.getJob("test", "job")).thenReturn(job);
+
+    final var mvcResult =
+        mockMvc.perform(get("/key/jobs/job").param("waitMs", "10000")).andReturn();
+    job.getResult().completeExceptionally(new KeyPairServiceException());
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), KeyGenerationJobResponse.class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(KeyGenerationJobService.Status.FAILED.name(), responseBody.getStatus());
+    assertEquals(new KeyPairServiceException().getMessage(), responseBody.getError());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void getKeyGenerationJob_fail_400() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var exception = new KeyPairServiceException(ExceptionType.JOB_NOT_FOUND);
+    when(keyGenerationJobService.getJob(any(), any())).thenThrow(exception);
+
+    final var mvcResult = mockMvc.perform(get("/key/jobs/job")).andReturn();
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), ErrorMessageResponse.class);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    assertEquals(exception.getMessage(), responseBody.getError());
+  }
+
   @WithMockUser(username = "test", password = "test", authorities = {"USER"})
   @Test
   public void deleteKeyPair_success() throws Exception {
@@ -205,10 +327,9 @@ public class TestKeyPairController {
     final var requestBody = new SignatureRequest("SHA512", "test");
     final var content = objectMapper.writeValueAsString(requestBody);
     final var signature = new String("test");
-    final var keyPair = new KeyPair(null, null, null, null, "test", null, null);
-    when(keyPairService.sign(any(), any(), any(), any(), any())).thenReturn(signature);
-    when(keyPairService.getKeyPair(any(), any())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn("test");
+    final var signatureResult = new KeyPairService.SignatureResult(signature, "test", "test");
+    when(keyPairService.signWithPublicKey(any(), any(), any(), any(), any()))
+        .thenReturn(signatureResult);
 
     final var mvcResult = mockMvc
         .perform(post("/key/test/sign").contentType(MediaType.APPLICATION_JSON).content(content))
@@ -227,8 +348,9 @@ public class TestKeyPairController {
     final var objectMapper = new ObjectMapper();
     final var requestBody = new SignatureRequest("SHA512", "test");
     final var content = objectMapper.writeValueAsString(requestBody);
-    final var signature = "test";
-    when(keyPairService.sign(any(), any(), any(), any(), any())).thenReturn(signature);
+    final var signatureResult = new KeyPairService.SignatureResult("test", "test", "test");
+    when(keyPairService.signWithPublicKey(any(), any(), any(), any(), any()))
+        .thenReturn(signatureResult);
 
     final var mvcResult = mockMvc
         .perform(post("/key/test/sign").contentType(MediaType.APPLICATION_JSON).content(content))
@@ -245,7 +367,8 @@ public class TestKeyPairController {
     final var requestBody = new SignatureRequest("SHA512", "test");
     final var content = objectMapper.writeValueAsString(requestBody);
     final var exception = new KeyPairServiceException(ExceptionType.KEY_NOT_FOUND);
-    when(keyPairService.sign(any(), any(), any(), any(), any())).thenThrow(exception);
+    when(keyPairService.signWithPublicKey(any(), any(), any(), any(), any()))
+        .thenThrow(exception);
 
     final var mvcResult = mockMvc
         .perform(post("/key/test/sign").contentType(MediaType.APPLICATION_JSON).content(content))
@@ -259,6 +382,58 @@ public class TestKeyPairController {
     assertEquals(responseBody.getError(), exception.getMessage());
   }
 
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void signStream_success() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var signatureResult = new KeyPairService.SignatureResult("signature", "test", "test");
+    when(keyPairService.signStream(eq("test"), eq("test"), any(), eq("test"), eq("SHA256")))
+        .thenAnswer(invocation -> {
+          final InputStream data = invocation.getArgument(2);
+          assertArrayEquals("data".getBytes(), data.readAllBytes());
+          return signatureResult;
+        });
+
+    final var mvcResult = mockMvc.perform(post("/key/test/sign/stream")
+        .param("hashingAlgorithm", "SHA256").contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .content("data".getBytes())).andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), SignatureResponse.class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("signature", responseBody.getBase64EncodedSignature());
+  }
+
+  @Test
+  public void signStream_fail_unauthenticated() throws Exception {
+    final var mvcResult = mockMvc.perform(post("/key/test/sign/stream")
+        .param("hashingAlgorithm", "SHA256").contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .content("data".getBytes())).andReturn();
+
+    final var response = mvcResult.getResponse();
+    assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+    verify(keyPairService, never()).signStream(any(), any(), any(), any(), any());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void signStream_fail_400() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var exception = new KeyPairServiceException(ExceptionType.UNSUPPORTED_HASHING_ALGORITHM);
+    when(keyPairService.signStream(any(), any(), any(), any(), any())).thenThrow(exception);
+
+    final var mvcResult = mockMvc.perform(post("/key/test/sign/stream")
+        .param("hashingAlgorithm", "test").contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .content("data".getBytes())).andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), ErrorMessageResponse.class);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    assertEquals(exception.getMessage(), responseBody.getError());
+  }
+
   @WithMockUser(username = "test", password = "test", authorities = {"USER"})
   @Test
   public void sign_fail_500() throws Exception {
@@ -266,7 +441,8 @@ public class TestKeyPairController {
     final var requestBody = new SignatureRequest("SHA512", "test");
     final var content = objectMapper.writeValueAsString(requestBody);
     final var exception = new RuntimeException("test");
-    when(keyPairService.sign(any(), any(), any(), any(), any())).thenThrow(exception);
+    when(keyPairService.signWithPublicKey(any(), any(), any(), any(), any()))
+        .thenThrow(exception);
 
     final var mvcResult = mockMvc
         .perform(post("/key/test/sign").contentType(MediaType.APPLICATION_JSON).content(content))
@@ -280,6 +456,126 @@ public class TestKeyPairController {
     assertEquals(responseBody.getError(), exception.getMessage());
   }
 
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void signDigest_success() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new DigestSignatureRequest("2.16.840.1.101.3.4.2.1", "test");
+    final var content = objectMapper.writeValueAsString(requestBody);
+    final var signatureResult = new KeyPairService.SignatureResult("signature", "test", "test");
+    when(keyPairService.signDigest("test", "test", "test", "test", "2.16.840.1.101.3.4.2.1"))
+        .thenReturn(signatureResult);
+
+    final var mvcResult = mockMvc.perform(
+        post("/key/test/sign/digest").contentType(MediaType.APPLICATION_JSON).content(content))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), SignatureResponse.class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("signature", responseBody.getBase64EncodedSignature());
+  }
+
+  @Test
+  public void signDigest_fail_unauthenticated() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new DigestSignatureRequest("2.16.840.1.101.3.4.2.1", "test");
+    final var content = objectMapper.writeValueAsString(requestBody);
+
+    final var mvcResult = mockMvc.perform(
+        post("/key/test/sign/digest").contentType(MediaType.APPLICATION_JSON).content(content))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+    verify(keyPairService, never()).signDigest(any(), any(), any(), any(), any());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void signDigest_fail_400() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new DigestSignatureRequest("2.16.840.1.101.3.4.2.1", "test");
+    final var content = objectMapper.writeValueAsString(requestBody);
+    final var exception = new KeyPairServiceException(ExceptionType.INVALID_DIGEST);
+    when(keyPairService.signDigest(any(), any(), any(), any(), any())).thenThrow(exception);
+
+    final var mvcResult = mockMvc.perform(
+        post("/key/test/sign/digest").contentType(MediaType.APPLICATION_JSON).content(content))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), ErrorMessageResponse.class);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    assertEquals(exception.getMessage(), responseBody.getError());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void signBatch_success() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new SignatureBatchRequest("SHA512", List.of("dGVzdA==", "dGVzdDI="));
+    final var content = objectMapper.writeValueAsString(requestBody);
+    final var keyPair = new KeyPair(null, null, null, null, "test", null, null);
+    final var signatures = List.of(new KeyPairService.SignedItem("signature", null),
+        new KeyPairService.SignedItem(null, "error"));
+    when(keyPairService.signBatch(any(), any(), any(), any(), any()))
+        .thenReturn(new KeyPairService.BatchSignature(keyPair, signatures));
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn("test");
+
+    final var mvcResult = mockMvc.perform(
+        post("/key/test/sign/batch").contentType(MediaType.APPLICATION_JSON).content(content))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBodyAsString = response.getContentAsString();
+    final var responseBody =
+        objectMapper.readValue(responseBodyAsString, SignatureBatchResponse.class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(2, responseBody.getSignatures().size());
+    assertEquals("signature", responseBody.getSignatures().get(0).getBase64EncodedSignature());
+    assertEquals("error", responseBody.getSignatures().get(1).getError());
+    assertEquals("test", responseBody.getBase64EncodedPublicKey());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {})
+  @Test
+  public void signBatch_fail_403() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new SignatureBatchRequest("SHA512", List.of("dGVzdA=="));
+    final var content = objectMapper.writeValueAsString(requestBody);
+
+    final var mvcResult = mockMvc.perform(
+        post("/key/test/sign/batch").contentType(MediaType.APPLICATION_JSON).content(content))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void signBatch_fail_400() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var requestBody = new SignatureBatchRequest("SHA512", List.of());
+    final var content = objectMapper.writeValueAsString(requestBody);
+    final var exception = new KeyPairServiceException(ExceptionType.INVALID_BATCH);
+    when(keyPairService.signBatch(any(), any(), any(), any(), any())).thenThrow(exception);
+
+    final var mvcResult = mockMvc.perform(
+        post("/key/test/sign/batch").contentType(MediaType.APPLICATION_JSON).content(content))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBodyAsString = response.getContentAsString();
+    final var responseBody =
+        objectMapper.readValue(responseBodyAsString, ErrorMessageResponse.class);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    assertEquals(exception.getMessage(), responseBody.getError());
+  }
+
   @WithMockUser(username = "test", password = "test", authorities = {"USER"})
   @Test
   public void getKey_success() throws Exception {
@@ -291,7 +587,7 @@ public class TestKeyPairController {
     final var keyPair = new KeyPair("publicKeyIdentifier", "privateKey", keyAlgorithm, keyParameter,
         uniqueIdentifier, "keyName", null);
     when(keyPairService.getKeyPair(any(), any())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key/uniqueIdentifier")).andReturn();
 
@@ -314,7 +610,7 @@ public class TestKeyPairController {
     final var keyPair = new KeyPair("publicKeyIdentifier", "privateKey", keyAlgorithm, keyParameter,
         uniqueIdentifier, "keyName", null);
     when(keyPairService.getKeyPair(any(), any())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key/uniqueIdentifier")).andReturn();
 
@@ -328,7 +624,7 @@ public class TestKeyPairController {
     final var publicKey = "publicKey";
     final var exception = new KeyPairServiceException(ExceptionType.KEY_NOT_FOUND);
     when(keyPairService.getKeyPair(any(), any())).thenThrow(exception);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key/uniqueIdentifier")).andReturn();
 
@@ -346,7 +642,7 @@ public class TestKeyPairController {
         uniqueIdentifier, "keyName", null);
     final var exception = new RuntimeException();
     when(keyPairService.getKeyPair(any(), any())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenThrow(exception);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenThrow(exception);
 
     final var mvcResult = mockMvc.perform(get("/key/uniqueIdentifier")).andReturn();
 
@@ -365,7 +661,7 @@ public class TestKeyPairController {
     final var keyPair = new KeyPair("publicKeyIdentifier", "privateKey", keyAlgorithm, keyParameter,
         uniqueIdentifier, "keyName", null);
     when(keyPairService.getKeyPairByKeyName(anyString(), anyString())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key").param("keyName", "keyName")).andReturn();
 
@@ -390,7 +686,7 @@ public class TestKeyPairController {
     final var keyPair = new KeyPair("publicKeyIdentifier", "privateKey", keyAlgorithm, keyParameter,
         uniqueIdentifier, "keyName", null);
     when(keyPairService.getKeyPairByKeyName(anyString(), anyString())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key").param("keyName", "keyName")).andReturn();
 
@@ -404,7 +700,7 @@ public class TestKeyPairController {
     final var publicKey = "publicKey";
     final var exception = new KeyPairServiceException(ExceptionType.KEY_NOT_FOUND);
     when(keyPairService.getKeyPairByKeyName(any(), any())).thenThrow(exception);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key").param("keyName", "keyName")).andReturn();
 
@@ -422,7 +718,7 @@ public class TestKeyPairController {
         uniqueIdentifier, "keyName", null);
     final var exception = new RuntimeException();
     when(keyPairService.getKeyPairByKeyName(any(), any())).thenReturn(keyPair);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenThrow(exception);
+    when(keyPairService.getEncodedPublicKey(any(KeyPair.class))).thenThrow(exception);
 
     final var mvcResult = mockMvc.perform(get("/key").param("keyName", "keyName")).andReturn();
 
@@ -440,19 +736,20 @@ public class TestKeyPairController {
     final var keyName1 = "keyName1";
     final var keyName2 = "keyName2";
     final var objectMapper = new ObjectMapper();
-    final var keyPair1 = new KeyPair("publicKeyIdentifier1", "privateKey1", keyAlgorithm,
-        keyParameter, uniqueIdentifier, keyName1, null);
-    final var keyPair2 = new KeyPair("publicKeyIdentifier2", "privateKey2", keyAlgorithm,
-        keyParameter, uniqueIdentifier, keyName2, null);
-    final var keyPairList = new ArrayList<KeyPair>();
+    final var keyPair1 = new KeyPairSummary(1L, uniqueIdentifier, keyAlgorithm, keyParameter,
+        keyName1, "publicKeyIdentifier1", publicKey);
+    final var keyPair2 = new KeyPairSummary(2L, uniqueIdentifier, keyAlgorithm, keyParameter,
+        keyName2, "publicKeyIdentifier2", publicKey);
+    final var keyPairList = new ArrayList<KeyPairSummary>();
     keyPairList.add(keyPair1);
     keyPairList.add(keyPair2);
-    when(keyPairService.getKeyPairs(anyString())).thenReturn(keyPairList);
-    when(keyPairService.getPublicKey(any(), any(), any())).thenReturn(publicKey);
+    when(keyPairService.getKeyPairSummaries("test")).thenReturn(keyPairList);
+    when(keyPairService.getEncodedPublicKey(any(KeyPairSummary.class))).thenReturn(publicKey);
 
     final var mvcResult = mockMvc.perform(get("/key")).andReturn();
 
     final var response = mvcResult.getResponse();
+    assertNull(response.getHeader(HttpHeaders.LINK));
     final var responseBodyAsString = response.getContentAsString();
     final var responseBody = objectMapper.readValue(responseBodyAsString, KeyResponse[].class);
     final var keyResponse1 = responseBody[0];
@@ -467,6 +764,109 @@ public class TestKeyPairController {
     assertEquals(publicKey, keyResponse2.getPublicKey());
   }
 
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void getKeys_nextPage() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    final var keyPair = new KeyPairSummary(1L, "uniqueIdentifier", "EC", "secp256r1", "keyName",
+        "publicKeyIdentifier", "publicKey");
+    when(keyPairService.getKeyPairPage("test", "token", 1))
+        .thenReturn(new KeyPairPage(List.of(keyPair), "next"));
+    when(keyPairService.getEncodedPublicKey(any(KeyPairSummary.class))).thenReturn("publicKey");
+
+    final var mvcResult = mockMvc
+        .perform(get("/key").param("pageSize", "1").param("continuationToken", "token"))
+        .andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), KeyResponse[].class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(1, responseBody.length);
+    assertEquals("keyName", responseBody[0].getKeyName());
+    assertEquals("<http://localhost/key?pageSize=1&continuationToken=next>; rel=\"next\"",
+        response.getHeader(HttpHeaders.LINK));
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void getKeys_continuationTokenWithoutPageSize() throws Exception {
+    final var keyPair = new KeyPairSummary(1L, "uniqueIdentifier", "EC", "secp256r1", "keyName",
+        "publicKeyIdentifier", "publicKey");
+    when(keyPairService.getKeyPairPage("test", "token", KeyPairService.DEFAULT_PAGE_SIZE))
+        .thenReturn(new KeyPairPage(List.of(keyPair), "next"));
+    when(keyPairService.getEncodedPublicKey(any(KeyPairSummary.class))).thenReturn("publicKey");
+
+    final var mvcResult =
+        mockMvc.perform(get("/key").param("continuationToken", "token")).andReturn();
+
+    final var response = mvcResult.getResponse();
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("<http://localhost/key?pageSize=" + KeyPairService.DEFAULT_PAGE_SIZE
+        + "&continuationToken=next>; rel=\"next\"", response.getHeader(HttpHeaders.LINK));
+    verify(keyPairService, never()).getKeyPairSummaries(any());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void exportKeys_success() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    doAnswer(invocation -> {
+      final KeyPairExportHandler handler = invocation.getArgument(1);
+      handler.accept(new KeyPairSummary(1L, "uniqueIdentifier1", "EC", "secp256r1", "keyName1",
+          "publicKeyIdentifier1", null), "publicKey1");
+      handler.accept(new KeyPairSummary(2L, "uniqueIdentifier2", "EC", "secp256r1", "keyName2",
+          "publicKeyIdentifier2", null), "publicKey2");
+      return null;
+    }).when(keyPairService).exportKeyPairs(eq("test"), any());
+
+    final var mvcResult = mockMvc.perform(get("/key").param("export", "true")).andReturn();
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), KeyResponse[].class);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(2, responseBody.length);
+    assertEquals("uniqueIdentifier1", responseBody[0].getKeyPairUniqueIdentifier());
+    assertEquals("publicKey1", responseBody[0].getPublicKey());
+    assertEquals("keyName2", responseBody[1].getKeyName());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void exportKeys_failMidStream_malformedJson() throws Exception {
+    doAnswer(invocation -> {
+      final KeyPairExportHandler handler = invocation.getArgument(1);
+      handler.accept(new KeyPairSummary(1L, "uniqueIdentifier1", "EC", "secp256r1", "keyName1",
+          "publicKeyIdentifier1", null), "publicKey1");
+      throw new KeyPairServiceException();
+    }).when(keyPairService).exportKeyPairs(eq("test"), any());
+
+    final var mvcResult = mockMvc.perform(get("/key").param("export", "true")).andReturn();
+    mvcResult.getAsyncResult();
+
+    final var content = mvcResult.getResponse().getContentAsString();
+    assertTrue(content.startsWith("[{"));
+    assertThrows(JsonProcessingException.class,
+        () -> new ObjectMapper().readValue(content, KeyResponse[].class));
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {"USER"})
+  @Test
+  public void getKeys_invalidContinuationToken_400() throws Exception {
+    final var exception = new KeyPairServiceException(ExceptionType.INVALID_CONTINUATION_TOKEN);
+    when(keyPairService.getKeyPairPage(any(), any(), anyInt())).thenThrow(exception);
+
+    final var mvcResult =
+        mockMvc.perform(get("/key").param("continuationToken", "invalid")).andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody = new ObjectMapper().readValue(response.getContentAsString(),
+        ErrorMessageResponse.class);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    assertEquals(exception.getMessage(), responseBody.getError());
+  }
+
   @WithMockUser(username = "test", password = "test", authorities = {})
   @Test
   public void verify_success() throws Exception {
@@ -30,6 +30,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import br.ufsc.labsec.openpsc.data.request.KNetConfigurationRequest;
 import br.ufsc.labsec.openpsc.data.request.RegisterUserRequest;
 import br.ufsc.labsec.openpsc.data.response.ErrorMessageResponse;
+import br.ufsc.labsec.openpsc.data.response.NoticeResponse;
 import br.ufsc.labsec.openpsc.data.response.UserResponse;
 import br.ufsc.labsec.openpsc.entity.AppUser;
 import br.ufsc.labsec.openpsc.entity.enums.Authority;
@@ -318,4 +319,28 @@ public class TestSystemController {
     assertEquals(response.getStatus(), HttpStatus.INTERNAL_SERVER_ERROR.value());
   }
 
+  @WithMockUser(username = "test", password = "test", authorities = {"ADMINISTRATOR"})
+  @Test
+  public void backfillEncodedPublicKeys_success() throws Exception {
+    final var objectMapper = new ObjectMapper();
+    when(systemConfigurationService.backfillEncodedPublicKeys()).thenReturn(2);
+
+    final var mvcResult = mockMvc.perform(post("/system/public-key-backfill")).andReturn();
+
+    final var response = mvcResult.getResponse();
+    final var responseBody =
+        objectMapper.readValue(response.getContentAsString(), NoticeResponse.class);
+    assertEquals(response.getStatus(), HttpStatus.OK.value());
+    assertEquals("2 key pairs updated.", responseBody.getMessage());
+  }
+
+  @WithMockUser(username = "test", password = "test", authorities = {})
+  @Test
+  public void backfillEncodedPublicKeys_fail_403() throws Exception {
+    final var mvcResult = mockMvc.perform(post("/system/public-key-backfill")).andReturn();
+
+    final var response = mvcResult.getResponse();
+    assertEquals(response.getStatus(), HttpStatus.FORBIDDEN.value());
+  }
+
 }
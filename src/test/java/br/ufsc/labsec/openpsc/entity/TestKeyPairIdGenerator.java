@@ -0,0 +1,46 @@
+package br.ufsc.labsec.openpsc.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import br.ufsc.labsec.openpsc.entity.enums.Authority;
+
+@DataJpaTest(properties = {"spring.flyway.enabled=false",
+    "spring.jpa.properties." + KeyPairIdGenerator.BLOCK_SIZE_SETTING + "=10"})
+public class TestKeyPairIdGenerator {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  private KeyPair persistKeyPair(AppUser owner, String keyName) {
+    return entityManager.persist(new KeyPair("public", "private", "EC", "secp256r1",
+        "unique_" + keyName, keyName, owner));
+  }
+
+  @Test
+  public void generate_consecutiveIdsFromOneBlock() {
+    final var owner = entityManager.persist(new AppUser("test", "test", Authority.USER));
+
+    final var first = persistKeyPair(owner, "first");
+    final var second = persistKeyPair(owner, "second");
+    final var third = persistKeyPair(owner, "third");
+
+    assertEquals(first.getId() + 1, second.getId());
+    assertEquals(second.getId() + 1, third.getId());
+  }
+
+  @Test
+  public void generate_blockSizeIncrement() {
+    final var increment = entityManager.getEntityManager()
+        .createNativeQuery("select increment from information_schema.sequences "
+            + "where lower(sequence_name) = '" + KeyPairIdGenerator.SEQUENCE_NAME + "'")
+        .getSingleResult();
+
+    assertEquals(10L, ((Number) increment).longValue());
+  }
+
+}
@@ -0,0 +1,106 @@
+package br.ufsc.labsec.openpsc.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import br.ufsc.labsec.openpsc.service.StageTimings;
+
+public class TestStageTimingFilter {
+
+  private static final String BODY = "{\"signature\":\"test\"}";
+
+  private static final HttpServlet SERVLET = new HttpServlet() {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+      try (final var stage = StageTimings.stage("hsm")) {
+        StageTimings.start("serialization");
+        response.getWriter().write(BODY);
+      }
+    }
+  };
+
+  @Test
+  public void doFilter_enabled() throws IOException, ServletException {
+    final var filter = new StageTimingFilter(true);
+    final var request = new MockHttpServletRequest();
+    request.addHeader(StageTimingFilter.REQUEST_HEADER, "true");
+    final var response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain(SERVLET));
+
+    final var serverTiming = response.getHeader(StageTimingFilter.RESPONSE_HEADER);
+    assertTrue(serverTiming.matches("hsm;dur=[0-9.]+, serialization;dur=[0-9.]+, total;dur=[0-9.]+"),
+        serverTiming);
+    assertEquals(BODY, response.getContentAsString());
+  }
+
+  @Test
+  public void doFilter_notRequested() throws IOException, ServletException {
+    final var filter = new StageTimingFilter(true);
+    final var request = new MockHttpServletRequest();
+    final var response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain(SERVLET));
+
+    assertNull(response.getHeader(StageTimingFilter.RESPONSE_HEADER));
+    assertEquals(BODY, response.getContentAsString());
+  }
+
+  @Test
+  public void doFilter_disabled() throws IOException, ServletException {
+    final var filter = new StageTimingFilter(false);
+    final var request = new MockHttpServletRequest();
+    request.addHeader(StageTimingFilter.REQUEST_HEADER, "true");
+    final var response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain(SERVLET));
+
+    assertNull(response.getHeader(StageTimingFilter.RESPONSE_HEADER));
+    assertEquals(BODY, response.getContentAsString());
+  }
+
+  @Test
+  public void doFilter_largeBodyNotHeld() throws IOException, ServletException {
+    final var filter = new StageTimingFilter(true);
+    final var request = new MockHttpServletRequest();
+    request.addHeader(StageTimingFilter.REQUEST_HEADER, "true");
+    final var response = new MockHttpServletResponse();
+    final var body = new byte[ServerTimingResponseWrapper.BUFFER_SIZE + 1];
+    final var writtenThrough = new AtomicInteger();
+    final var servlet = new HttpServlet() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void service(HttpServletRequest request, HttpServletResponse wrappedResponse)
+          throws IOException {
+        wrappedResponse.getOutputStream().write(body);
+        writtenThrough.set(response.getContentAsByteArray().length);
+      }
+    };
+
+    filter.doFilter(request, response, new MockFilterChain(servlet));
+
+    assertEquals(body.length, writtenThrough.get());
+    final var serverTiming = response.getHeader(StageTimingFilter.RESPONSE_HEADER);
+    assertTrue(serverTiming.matches("total;dur=[0-9.]+"), serverTiming);
+    assertEquals(body.length, response.getContentAsByteArray().length);
+  }
+
+}
@@ -0,0 +1,52 @@
+package br.ufsc.labsec.openpsc.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one endpoint recorded by a single worker thread. Recorders of all workers are
+ * merged before computing percentiles.
+ */
+public class LatencyRecorder {
+
+  private long[] latenciesNs = new long[1024];
+  private int count = 0;
+  private long errors = 0;
+
+  public void record(long latencyNs, boolean success) {
+    if (count == latenciesNs.length)
+      latenciesNs = Arrays.copyOf(latenciesNs, count * 2);
+    latenciesNs[count++] = latencyNs;
+    if (!success)
+      errors++;
+  }
+
+  public void merge(LatencyRecorder other) {
+    if (count + other.count > latenciesNs.length)
+      latenciesNs = Arrays.copyOf(latenciesNs, count + other.count);
+    System.arraycopy(other.latenciesNs, 0, latenciesNs, count, other.count);
+    count += other.count;
+    errors += other.errors;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the latency at the given percentile, in milliseconds
+   */
+  public double percentileMs(double percentile) {
+    if (count == 0)
+      return 0;
+    final var sorted = Arrays.copyOf(latenciesNs, count);
+    Arrays.sort(sorted);
+    final var index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+  }
+
+}
@@ -0,0 +1,325 @@
+package br.ufsc.labsec.openpsc.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.ufsc.labsec.openpsc.TspApplication;
+import br.ufsc.labsec.openpsc.data.request.AuthenticationRequest;
+import br.ufsc.labsec.openpsc.data.request.KNetConfigurationRequest;
+import br.ufsc.labsec.openpsc.data.request.KeyPairGenerationRequest;
+import br.ufsc.labsec.openpsc.data.request.RegisterUserRequest;
+import br.ufsc.labsec.openpsc.data.request.SignatureRequest;
+import br.ufsc.labsec.openpsc.data.request.SignatureVerificationRequest;
+import br.ufsc.labsec.openpsc.data.response.AuthenticationResponse;
+import br.ufsc.labsec.openpsc.data.response.SignatureResponse;
+import br.ufsc.labsec.openpsc.service.hsm.SimulatedHsmBackend;
+
+/**
+ * HTTP load generator. Unless {@code loadtest.url} points to a running server, it boots the
+ * application with an in-memory database and the HSM simulator. Each worker thread logs in as its
+ * own user, creates a key and then issues a weighted mix of requests for a fixed duration.
+ * Latency percentiles and throughput are reported per endpoint.
+ *
+ * <p>
+ * Settings are system properties: {@code loadtest.threads}, {@code loadtest.warmup-seconds},
+ * {@code loadtest.duration-seconds}, {@code loadtest.mix} (e.g.
+ * {@code LOGIN:5,CREATE_KEY:5,SIGN:60,LIST_KEYS:15,VERIFY:15}), {@code loadtest.key-algorithm},
+ * {@code loadtest.key-parameter}, {@code loadtest.signature-algorithm} and {@code loadtest.url}.
+ * Simulated HSM latencies are set with the {@code hsm.simulator.*} properties.
+ */
+public class LoadTestHarness {
+
+  enum Endpoint {
+    LOGIN, CREATE_KEY, SIGN, LIST_KEYS, VERIFY
+  }
+
+  private static final String ADMIN_USERNAME = "loadtest-admin";
+  private static final String PASSWORD = "loadtest-password";
+  private static final String HASHING_ALGORITHM = "SHA256";
+  private static final String DEFAULT_MIX = "LOGIN:5,CREATE_KEY:5,SIGN:60,LIST_KEYS:15,VERIFY:15";
+
+  private final String baseUrl;
+  private final int threads;
+  private final long warmupMs;
+  private final long durationMs;
+  private final Map<Endpoint, Integer> mix;
+  private final String keyAlgorithm;
+  private final String keyParameter;
+  private final String signatureAlgorithm;
+  private final HttpClient httpClient = HttpClient.newBuilder().build();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AtomicLong keyCounter = new AtomicLong();
+
+  /**
+   * Keeps the component scan from picking up the configurations of the tests, which share the
+   * classpath with the harness.
+   */
+  static class TestConfigurationExcludeFilter extends TypeExcludeFilter {
+
+    @Override
+    public boolean match(MetadataReader metadataReader,
+        MetadataReaderFactory metadataReaderFactory) {
+      final var annotationMetadata = metadataReader.getAnnotationMetadata();
+      return annotationMetadata.hasAnnotation(TestConfiguration.class.getName());
+    }
+
+  }
+
+  private class Worker implements Callable<Map<Endpoint, LatencyRecorder>> {
+
+    private final String username;
+    private final String base64EncodedData;
+    private String token;
+    private String keyUniqueIdentifier;
+    private String base64EncodedSignature;
+
+    Worker(int index) {
+      this.username = "loadtest-user-" + index;
+      this.base64EncodedData =
+          Base64.getEncoder().encodeToString(("loadtest data " + index).getBytes());
+    }
+
+    void setUp() throws IOException, InterruptedException {
+      send(post("/user", new RegisterUserRequest(username, PASSWORD), null));
+      login();
+      createKey();
+      sign();
+    }
+
+    @Override
+    public Map<Endpoint, LatencyRecorder> call() throws Exception {
+      final var recorders = new EnumMap<Endpoint, LatencyRecorder>(Endpoint.class);
+      for (final var endpoint : Endpoint.values())
+        recorders.put(endpoint, new LatencyRecorder());
+      final var start = System.currentTimeMillis();
+      final var measureStart = start + warmupMs;
+      final var end = measureStart + durationMs;
+      var now = start;
+      while (now < end) {
+        final var endpoint = nextEndpoint();
+        final var requestStart = System.nanoTime();
+        final var success = execute(endpoint);
+        final var latencyNs = System.nanoTime() - requestStart;
+        now = System.currentTimeMillis();
+        if (now >= measureStart)
+          recorders.get(endpoint).record(latencyNs, success);
+      }
+      return recorders;
+    }
+
+    private boolean execute(Endpoint endpoint) throws IOException, InterruptedException {
+      switch (endpoint) {
+        case LOGIN:
+          return login();
+        case CREATE_KEY:
+          return createKey();
+        case SIGN:
+          return sign();
+        case LIST_KEYS:
+          return isSuccess(send(get("/key", token)));
+        default:
+          return verify();
+      }
+    }
+
+    private boolean login() throws IOException, InterruptedException {
+      final var response =
+          send(post("/login", new AuthenticationRequest(username, PASSWORD), null));
+      if (!isSuccess(response))
+        return false;
+      token =
+          objectMapper.readValue(response.body(), AuthenticationResponse.class).getAccessToken();
+      return true;
+    }
+
+    private boolean createKey() throws IOException, InterruptedException {
+      final var keyName = "loadtest-key-" + keyCounter.incrementAndGet();
+      final var response = send(post("/key",
+          new KeyPairGenerationRequest(keyAlgorithm, keyParameter, keyName), token));
+      if (!isSuccess(response))
+        return false;
+      final var location = response.headers().firstValue("Location").orElseThrow();
+      keyUniqueIdentifier = location.substring(location.lastIndexOf('/') + 1);
+      return true;
+    }
+
+    private boolean sign() throws IOException, InterruptedException {
+      final var response = send(post("/key/" + keyUniqueIdentifier + "/sign",
+          new SignatureRequest(HASHING_ALGORITHM, base64EncodedData), token));
+      if (!isSuccess(response))
+        return false;
+      base64EncodedSignature = objectMapper.readValue(response.body(), SignatureResponse.class)
+          .getBase64EncodedSignature();
+      return true;
+    }
+
+    private boolean verify() throws IOException, InterruptedException {
+      return isSuccess(send(post("/key/" + keyUniqueIdentifier + "/verify-signature",
+          new SignatureVerificationRequest(base64EncodedData, base64EncodedSignature,
+              signatureAlgorithm),
+          token)));
+    }
+
+  }
+
+  public LoadTestHarness(String baseUrl) {
+    this.baseUrl = baseUrl;
+    this.threads = Integer.getInteger("loadtest.threads", 8);
+    this.warmupMs = Long.getLong("loadtest.warmup-seconds", 10) * 1000;
+    this.durationMs = Long.getLong("loadtest.duration-seconds", 30) * 1000;
+    this.mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+    this.keyAlgorithm = System.getProperty("loadtest.key-algorithm", "EC");
+    this.keyParameter = System.getProperty("loadtest.key-parameter", "secp256r1");
+    this.signatureAlgorithm =
+        System.getProperty("loadtest.signature-algorithm", "SHA256withECDSA");
+  }
+
+  public static void main(String[] args) throws Exception {
+    var baseUrl = System.getProperty("loadtest.url");
+    ConfigurableApplicationContext context = null;
+    if (baseUrl == null) {
+      context = new SpringApplicationBuilder(TspApplication.class)
+          .profiles("embedded-db", SimulatedHsmBackend.PROFILE).properties("server.port=0")
+          .initializers(applicationContext -> applicationContext.getBeanFactory()
+              .registerSingleton("testConfigurationExcludeFilter",
+                  new TestConfigurationExcludeFilter()))
+          .run(args);
+      baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+    try {
+      final var harness = new LoadTestHarness(baseUrl);
+      harness.configureSystem(context != null);
+      harness.report(harness.run());
+    } finally {
+      if (context != null)
+        context.close();
+    }
+  }
+
+  /**
+   * Creates the administrator and, on an embedded server, a placeholder HSM configuration. A
+   * server configured beforehand answers both with an error, which is ignored.
+   */
+  private void configureSystem(boolean configureHsm) throws IOException, InterruptedException {
+    send(post("/system/admin-user", new RegisterUserRequest(ADMIN_USERNAME, PASSWORD), null));
+    if (!configureHsm)
+      return;
+    final var loginResponse =
+        send(post("/login", new AuthenticationRequest(ADMIN_USERNAME, PASSWORD), null));
+    final var adminToken =
+        objectMapper.readValue(loginResponse.body(), AuthenticationResponse.class)
+            .getAccessToken();
+    final var hsmConfiguration =
+        new KNetConfigurationRequest(Map.of("USERNAME", "simulator", "PW", "simulator"));
+    final var body = objectMapper.writeValueAsBytes(hsmConfiguration);
+    final var response = send(HttpRequest.newBuilder(URI.create(baseUrl + "/system/hsm-config"))
+        .header("Content-Type", "application/json").header("Authorization", "Bearer " + adminToken)
+        .PUT(HttpRequest.BodyPublishers.ofByteArray(body)).build());
+    if (!isSuccess(response))
+      throw new IllegalStateException("HSM configuration failed: " + response.statusCode());
+  }
+
+  private Map<Endpoint, LatencyRecorder> run() throws Exception {
+    final var workers = new ArrayList<Worker>();
+    for (var i = 0; i < threads; i++) {
+      final var worker = new Worker(i);
+      worker.setUp();
+      workers.add(worker);
+    }
+    final var executor = Executors.newFixedThreadPool(threads);
+    try {
+      final var total = new EnumMap<Endpoint, LatencyRecorder>(Endpoint.class);
+      for (final var endpoint : Endpoint.values())
+        total.put(endpoint, new LatencyRecorder());
+      for (final var result : executor.invokeAll(workers))
+        for (final var entry : result.get().entrySet())
+          total.get(entry.getKey()).merge(entry.getValue());
+      return total;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void report(Map<Endpoint, LatencyRecorder> recorders) {
+    final var seconds = durationMs / 1000.0;
+    System.out.printf("%n%d threads, %.0f s measured after %.0f s warm-up, %s %s keys%n", threads,
+        seconds, warmupMs / 1000.0, keyAlgorithm, keyParameter);
+    System.out.printf("%-12s %10s %8s %10s %10s %10s %10s%n", "endpoint", "requests", "errors",
+        "req/s", "p50 ms", "p99 ms", "p999 ms");
+    var totalRequests = 0L;
+    for (final var entry : recorders.entrySet()) {
+      final var recorder = entry.getValue();
+      totalRequests += recorder.getCount();
+      System.out.printf("%-12s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", entry.getKey(),
+          recorder.getCount(), recorder.getErrors(), recorder.getCount() / seconds,
+          recorder.percentileMs(50), recorder.percentileMs(99), recorder.percentileMs(99.9));
+    }
+    System.out.printf("%-12s %10d %8s %10.1f%n", "total", totalRequests, "",
+        totalRequests / seconds);
+  }
+
+  private Endpoint nextEndpoint() {
+    final var totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+    var choice = ThreadLocalRandom.current().nextInt(totalWeight);
+    for (final var entry : mix.entrySet()) {
+      choice -= entry.getValue();
+      if (choice < 0)
+        return entry.getKey();
+    }
+    throw new IllegalStateException();
+  }
+
+  private static Map<Endpoint, Integer> parseMix(String mix) {
+    final var weights = new EnumMap<Endpoint, Integer>(Endpoint.class);
+    for (final var entry : mix.split(",")) {
+      final var parts = entry.split(":");
+      weights.put(Endpoint.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+    if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0)
+      throw new IllegalArgumentException("Invalid load test mix: " + mix);
+    return weights;
+  }
+
+  private HttpRequest post(String path, Object body, String token) throws IOException {
+    final var builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    if (token != null)
+      builder.header("Authorization", "Bearer " + token);
+    return builder.build();
+  }
+
+  private HttpRequest get(String path, String token) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", "Bearer " + token).GET().build();
+  }
+
+  private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+    return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static boolean isSuccess(HttpResponse<?> response) {
+    return response.statusCode() / 100 == 2;
+  }
+
+}
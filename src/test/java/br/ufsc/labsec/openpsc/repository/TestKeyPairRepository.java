@@ -0,0 +1,119 @@
+package br.ufsc.labsec.openpsc.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import br.ufsc.labsec.openpsc.entity.AppUser;
+import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.entity.enums.Authority;
+import br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary;
+
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+public class TestKeyPairRepository {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private KeyPairRepository keyPairRepository;
+
+  private KeyPair persistKeyPair(AppUser owner, String keyName) {
+    final var keyPair = new KeyPair("public_" + keyName, "private", "EC", "secp256r1",
+        "unique_" + keyName, keyName, owner);
+    keyPair.setEncodedPublicKey("encoded_" + keyName);
+    return entityManager.persist(keyPair);
+  }
+
+  @Test
+  public void findKeyPairSummaryByOwnerUsername_pages() {
+    final var owner = entityManager.persist(new AppUser("test", "test", Authority.USER));
+    final var other = entityManager.persist(new AppUser("other", "other", Authority.USER));
+    final var first = persistKeyPair(owner, "first");
+    persistKeyPair(other, "other");
+    final var second = persistKeyPair(owner, "second");
+    final var third = persistKeyPair(owner, "third");
+
+    final var firstPage =
+        keyPairRepository.findKeyPairSummaryByOwnerUsername("test", 0, PageRequest.of(0, 2));
+    final var secondPage = keyPairRepository.findKeyPairSummaryByOwnerUsername("test",
+        second.getId(), PageRequest.of(0, 2));
+
+    assertEquals(2, firstPage.size());
+    assertEquals(first.getId(), firstPage.get(0).getId());
+    assertEquals(second.getId(), firstPage.get(1).getId());
+    assertEquals(1, secondPage.size());
+    final var summary = secondPage.get(0);
+    assertEquals(third.getId(), summary.getId());
+    assertEquals("unique_third", summary.getUniqueIdentifier());
+    assertEquals("third", summary.getKeyName());
+    assertEquals("public_third", summary.getPublicKey());
+    assertEquals("encoded_third", summary.getEncodedPublicKey());
+  }
+
+  @Test
+  public void findKeyPairSummaryByOwnerUsername_unpaged() {
+    final var owner = entityManager.persist(new AppUser("test", "test", Authority.USER));
+    final var other = entityManager.persist(new AppUser("other", "other", Authority.USER));
+    final var first = persistKeyPair(owner, "first");
+    persistKeyPair(other, "other");
+    final var second = persistKeyPair(owner, "second");
+    final var third = persistKeyPair(owner, "third");
+
+    final var keyPairs =
+        keyPairRepository.findKeyPairSummaryByOwnerUsername("test", 0, Pageable.unpaged());
+
+    assertEquals(List.of(first.getId(), second.getId(), third.getId()),
+        keyPairs.stream().map(KeyPairSummary::getId).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void findKeyPairSummaryByEncodedPublicKeyIsNull() {
+    final var owner = entityManager.persist(new AppUser("test", "test", Authority.USER));
+    final var first = persistKeyPair(owner, "first");
+    first.setEncodedPublicKey(null);
+    persistKeyPair(owner, "backfilled");
+    final var second = persistKeyPair(owner, "second");
+    second.setEncodedPublicKey(null);
+    final var third = persistKeyPair(owner, "third");
+    third.setEncodedPublicKey(null);
+    entityManager.flush();
+
+    final var firstBatch =
+        keyPairRepository.findKeyPairSummaryByEncodedPublicKeyIsNull(0, PageRequest.of(0, 2));
+    final var secondBatch = keyPairRepository
+        .findKeyPairSummaryByEncodedPublicKeyIsNull(second.getId(), PageRequest.of(0, 2));
+
+    assertEquals(List.of(first.getId(), second.getId()),
+        firstBatch.stream().map(KeyPairSummary::getId).collect(Collectors.toList()));
+    assertEquals(List.of(third.getId()),
+        secondBatch.stream().map(KeyPairSummary::getId).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void updateEncodedPublicKey() {
+    final var owner = entityManager.persist(new AppUser("test", "test", Authority.USER));
+    final var keyPair = persistKeyPair(owner, "key");
+    keyPair.setEncodedPublicKey(null);
+    final var backfilled = persistKeyPair(owner, "backfilled");
+    entityManager.flush();
+
+    assertEquals(1, keyPairRepository.updateEncodedPublicKey(keyPair.getId(), "encoded"));
+    assertEquals(0, keyPairRepository.updateEncodedPublicKey(backfilled.getId(), "other"));
+
+    entityManager.clear();
+    assertEquals("encoded",
+        entityManager.find(KeyPair.class, keyPair.getId()).getEncodedPublicKey());
+    assertEquals("encoded_backfilled",
+        entityManager.find(KeyPair.class, backfilled.getId()).getEncodedPublicKey());
+  }
+
+}
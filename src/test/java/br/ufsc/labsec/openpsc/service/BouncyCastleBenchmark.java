@@ -0,0 +1,85 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request cost of the JCA lookups on the sign and verify paths, with a provider built for
+ * each request against the shared {@link BouncyCastle#PROVIDER}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BouncyCastleBenchmark {
+
+  private static final String HASHING_ALGORITHM = "SHA256";
+  private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+  private static final byte[] DATA = "benchmark".getBytes();
+
+  private PublicKey publicKey;
+  private byte[] signature;
+
+  @Setup
+  public void setup() throws Exception {
+    final var keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastle.PROVIDER);
+    keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+    final var keyPair = keyPairGenerator.generateKeyPair();
+    final var signer = Signature.getInstance(SIGNATURE_ALGORITHM, BouncyCastle.PROVIDER);
+    signer.initSign(keyPair.getPrivate());
+    signer.update(DATA);
+    publicKey = keyPair.getPublic();
+    signature = signer.sign();
+  }
+
+  private static byte[] digest(Provider provider) throws Exception {
+    return MessageDigest.getInstance(HASHING_ALGORITHM, provider).digest(DATA);
+  }
+
+  private boolean verify(Provider provider) throws Exception {
+    final var verifier = Signature.getInstance(SIGNATURE_ALGORITHM, provider);
+    verifier.initVerify(publicKey);
+    verifier.update(DATA);
+    return verifier.verify(signature);
+  }
+
+  @Benchmark
+  public byte[] signDigestNewProvider() throws Exception {
+    return digest(new BouncyCastleProvider());
+  }
+
+  @Benchmark
+  public byte[] signDigestSharedProvider() throws Exception {
+    return digest(BouncyCastle.PROVIDER);
+  }
+
+  @Benchmark
+  public boolean verifyNewProvider() throws Exception {
+    return verify(new BouncyCastleProvider());
+  }
+
+  @Benchmark
+  public boolean verifySharedProvider() throws Exception {
+    return verify(BouncyCastle.PROVIDER);
+  }
+
+}
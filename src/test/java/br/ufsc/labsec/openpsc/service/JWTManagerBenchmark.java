@@ -0,0 +1,57 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.ufsc.labsec.openpsc.entity.enums.Authority;
+
+/**
+ * Throughput of issuing and decoding access tokens. {@code decode} runs on every authenticated
+ * request, and repeatedly decodes the same token, as a session does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTManagerBenchmark {
+
+  private static final String USERNAME = "benchmark";
+  private static final String PASSWORD = "benchmark";
+  private static final String ISSUER = "benchmark";
+  private static final List<String> ROLES = List.of(Authority.USER.name());
+
+  private JWTManager jwtManager;
+  private String token;
+
+  @Setup
+  public void setup() {
+    jwtManager = new JWTManager();
+    ReflectionTestUtils.setField(jwtManager, "parameterEncryptor", new ParameterEncryptor());
+    token = jwtManager.createAccessToken(USERNAME, PASSWORD, ISSUER, ROLES);
+  }
+
+  @Benchmark
+  public String createAccessToken() {
+    return jwtManager.createAccessToken(USERNAME, PASSWORD, ISSUER, ROLES);
+  }
+
+  @Benchmark
+  public JWTManager.DecodedJWTManager decode() {
+    return jwtManager.decode(token);
+  }
+
+}
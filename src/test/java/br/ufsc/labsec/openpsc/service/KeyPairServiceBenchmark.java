@@ -0,0 +1,205 @@
+package br.ufsc.labsec.openpsc.service;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.entity.enums.KeyAlgorithmEnum;
+import br.ufsc.labsec.openpsc.repository.AppUserRepository;
+import br.ufsc.labsec.openpsc.repository.KeyPairRepository;
+import br.ufsc.labsec.openpsc.service.hsm.HsmMetrics;
+import br.ufsc.labsec.openpsc.service.hsm.SimulatedHsmBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Throughput of the {@link KeyPairService} hot paths. The HSM is replaced by a
+ * {@link SimulatedHsmBackend} without injected latency and the repositories by mocks, so the
+ * numbers cover the service itself plus software signing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyPairServiceBenchmark {
+
+  private static final String USERNAME = "benchmark";
+  private static final String KEY_UNIQUE_IDENTIFIER = "benchmark";
+  private static final String HASHING_ALGORITHM = "SHA256";
+  private static final String BASE64_ENCODED_DATA =
+      Base64.getEncoder().encodeToString("benchmark".getBytes());
+
+  static String keyParameter(KeyAlgorithmEnum keyAlgorithm) {
+    switch (keyAlgorithm) {
+      case EC:
+        return "secp256r1";
+      case RSA:
+        return "2048";
+      default:
+        return "Ed25519";
+    }
+  }
+
+  static String signatureAlgorithm(KeyAlgorithmEnum keyAlgorithm) {
+    switch (keyAlgorithm) {
+      case EC:
+        return "SHA256withECDSA";
+      case RSA:
+        return "SHA256withRSA";
+      default:
+        return "Ed25519";
+    }
+  }
+
+  static KeyPairService createKeyPairService(KeyPairRepository keyPairRepository,
+      SimulatedHsmBackend hsmBackend) {
+    final var kNetCommunicationService = new KNetCommunicationService();
+    ReflectionTestUtils.setField(kNetCommunicationService, "hsmBackend", hsmBackend);
+    ReflectionTestUtils.setField(kNetCommunicationService, "hsmMetrics",
+        new HsmMetrics(new SimpleMeterRegistry()));
+    final var publicKeyCache = new PublicKeyCache();
+    final var pregeneratedKeyPairPool = new PregeneratedKeyPairPool(kNetCommunicationService,
+        publicKeyCache, new SimpleMeterRegistry(), "", 1000);
+    return new KeyPairService(keyPairRepository, mock(AppUserRepository.class),
+        kNetCommunicationService, new ParameterEncryptor(), publicKeyCache,
+        new SignatureVerifier(), pregeneratedKeyPairPool,
+        new TransactionTemplate(mock(PlatformTransactionManager.class)));
+  }
+
+  @State(Scope.Benchmark)
+  public static class UniqueIdentifierState {
+
+    KeyPairService keyPairService;
+
+    @Setup
+    public void setup() {
+      keyPairService = createKeyPairService(mock(KeyPairRepository.class),
+          new SimulatedHsmBackend(0, 0, 0, 0));
+    }
+
+  }
+
+  @State(Scope.Benchmark)
+  public static class VerifyState {
+
+    @Param
+    KeyAlgorithmEnum keyAlgorithm;
+
+    KeyPairService keyPairService;
+    String base64EncodedSignature;
+
+    @Setup
+    public void setup() throws Exception {
+      final var provider = new BouncyCastleProvider();
+      final var keyPairGenerator = keyPairGenerator(keyAlgorithm, provider);
+      final var javaKeyPair = keyPairGenerator.generateKeyPair();
+      final var signature = Signature.getInstance(signatureAlgorithm(keyAlgorithm), provider);
+      signature.initSign(javaKeyPair.getPrivate());
+      signature.update(Base64.getDecoder().decode(BASE64_ENCODED_DATA));
+      base64EncodedSignature = Base64.getEncoder().encodeToString(signature.sign());
+
+      final var keyPair = new KeyPair("public", "private", keyAlgorithm.name(),
+          keyParameter(keyAlgorithm), KEY_UNIQUE_IDENTIFIER, "benchmark", null);
+      keyPair.setEncodedPublicKey(
+          Base64.getEncoder().encodeToString(javaKeyPair.getPublic().getEncoded()));
+      final var keyPairRepository = mock(KeyPairRepository.class);
+      when(keyPairRepository.findKeyPairByUniqueIdentifier(anyString()))
+          .thenReturn(Optional.of(keyPair));
+      keyPairService =
+          createKeyPairService(keyPairRepository, new SimulatedHsmBackend(0, 0, 0, 0));
+    }
+
+    private static KeyPairGenerator keyPairGenerator(KeyAlgorithmEnum keyAlgorithm,
+        BouncyCastleProvider provider) throws Exception {
+      switch (keyAlgorithm) {
+        case EC:
+          final var ecKeyPairGenerator = KeyPairGenerator.getInstance("EC", provider);
+          ecKeyPairGenerator.initialize(new ECGenParameterSpec(keyParameter(keyAlgorithm)));
+          return ecKeyPairGenerator;
+        case RSA:
+          final var rsaKeyPairGenerator = KeyPairGenerator.getInstance("RSA", provider);
+          rsaKeyPairGenerator.initialize(Integer.parseInt(keyParameter(keyAlgorithm)));
+          return rsaKeyPairGenerator;
+        default:
+          return KeyPairGenerator.getInstance(keyParameter(keyAlgorithm), provider);
+      }
+    }
+
+  }
+
+  @State(Scope.Benchmark)
+  public static class SignState {
+
+    @Param
+    KeyAlgorithmEnum keyAlgorithm;
+
+    KeyPairService keyPairService;
+    String accessKey;
+
+    @Setup
+    public void setup() throws Exception {
+      final var parameterEncryptor = new ParameterEncryptor();
+      accessKey = parameterEncryptor.encryptKey(USERNAME + "password" + "PSC");
+
+      final var hsmBackend = new SimulatedHsmBackend(0, 0, 0, 0);
+      hsmBackend.configure(Map.of());
+      final var identifiers =
+          hsmBackend.createKeyPair(keyAlgorithm.name(), keyParameter(keyAlgorithm), "benchmark");
+      final var keyPair = new KeyPair(identifiers.getPublicKeyIdentifier(),
+          parameterEncryptor.encrypt(identifiers.getPrivateKeyIdentifier(), accessKey),
+          keyAlgorithm.name(), keyParameter(keyAlgorithm), KEY_UNIQUE_IDENTIFIER, "benchmark",
+          null);
+      final var keyPairRepository = mock(KeyPairRepository.class);
+      when(keyPairRepository.findKeyPairByOwnerUsernameAndUniqueIdentifier(anyString(),
+          anyString())).thenReturn(Optional.of(keyPair));
+      keyPairService = createKeyPairService(keyPairRepository, hsmBackend);
+    }
+
+  }
+
+  @Benchmark
+  public String generateUniqueIdentifier(UniqueIdentifierState state)
+      throws NoSuchAlgorithmException {
+    return state.keyPairService.generateUniqueIdentifier("private-key-identifier",
+        "public-key-identifier");
+  }
+
+  @Benchmark
+  public boolean verifySignature(VerifyState state) throws Exception {
+    return state.keyPairService.verifySignature(KEY_UNIQUE_IDENTIFIER, BASE64_ENCODED_DATA,
+        state.base64EncodedSignature, signatureAlgorithm(state.keyAlgorithm));
+  }
+
+  @Benchmark
+  public String sign(SignState state) throws Exception {
+    return state.keyPairService.sign(USERNAME, state.accessKey, BASE64_ENCODED_DATA,
+        KEY_UNIQUE_IDENTIFIER, HASHING_ALGORITHM);
+  }
+
+}
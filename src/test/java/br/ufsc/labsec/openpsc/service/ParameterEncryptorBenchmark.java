@@ -0,0 +1,57 @@
+package br.ufsc.labsec.openpsc.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the {@link ParameterEncryptor} operations. The encryptor is shared by all
+ * benchmark threads, as the singleton bean is shared by all requests, so running with
+ * {@code -t 1}, {@code -t 4}, {@code -t 8} shows how it scales with concurrency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterEncryptorBenchmark {
+
+  private static final String VALUE = "0123456789abcdef0123456789abcdef";
+
+  private ParameterEncryptor parameterEncryptor;
+  private String accessKey;
+  private String encryptedValue;
+
+  @Setup
+  public void setup() {
+    parameterEncryptor = new ParameterEncryptor();
+    accessKey = parameterEncryptor.encryptKey("user" + "password" + "PSC");
+    encryptedValue = parameterEncryptor.encrypt(VALUE, accessKey);
+  }
+
+  @Benchmark
+  public String encrypt() {
+    return parameterEncryptor.encrypt(VALUE, accessKey);
+  }
+
+  @Benchmark
+  public String decrypt() {
+    return parameterEncryptor.decrypt(encryptedValue, accessKey);
+  }
+
+  @Benchmark
+  public String encryptKey() {
+    return parameterEncryptor.encryptKey(VALUE);
+  }
+
+}
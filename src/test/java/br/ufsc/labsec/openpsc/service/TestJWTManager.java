@@ -4,6 +4,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -22,6 +24,7 @@ import br.ufsc.labsec.openpsc.service.SystemKey;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 
 @SpringBootTest
 public class TestJWTManager {
@@ -87,4 +90,26 @@ public class TestJWTManager {
       assertTrue(decodedJwtManager.getAuthorities().contains(new SimpleGrantedAuthority(role)));
   }
 
+  @Test
+  public void decode_cached() {
+    final var token = jwtManager.createAccessToken(USERNAME, PASSWORD, ISSUER, ROLES);
+
+    final var decodedJwtManager = jwtManager.decode(token);
+    final var cachedDecodedJwtManager = jwtManager.decode(token);
+
+    assertSame(decodedJwtManager, cachedDecodedJwtManager);
+  }
+
+  @Test
+  public void decode_tamperedTokenAfterCached() {
+    final var token = jwtManager.createAccessToken(USERNAME, PASSWORD, ISSUER, ROLES);
+    jwtManager.decode(token);
+    final var signatureStart = token.lastIndexOf('.') + 1;
+    final var tamperedCharacter = token.charAt(signatureStart) == 'A' ? 'B' : 'A';
+    final var tamperedToken = token.substring(0, signatureStart) + tamperedCharacter
+        + token.substring(signatureStart + 1);
+
+    assertThrows(JWTVerificationException.class, () -> jwtManager.decode(tamperedToken));
+  }
+
 }
@@ -18,7 +18,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
 import br.ufsc.labsec.openpsc.service.exception.SystemServiceException;
-import br.ufsc.labsec.valueobject.crypto.KeyIdentifierPair;
+import br.ufsc.labsec.openpsc.service.hsm.HsmKeyIdentifiers;
 import br.ufsc.labsec.valueobject.crypto.keys.KeyManagerException;
 import br.ufsc.labsec.valueobject.exception.KNetException;
 
@@ -82,7 +82,7 @@ public class TestKNetCommunicationService {
       throws KNetException, NoSuchAlgorithmException, KNetCommunicationServiceException {
     createKnetConfiguration();
 
-    KeyIdentifierPair identifiers = null;
+    HsmKeyIdentifiers identifiers = null;
     try {
       identifiers = knetCommunicationService.createKeyPair("RSA", "1024", "test_sign");
       final var data = MessageDigest.getInstance("SHA256").digest("test".getBytes());
@@ -104,7 +104,7 @@ public class TestKNetCommunicationService {
       throws KNetException, NoSuchAlgorithmException, KNetCommunicationServiceException {
     createKnetConfiguration();
 
-    KeyIdentifierPair identifiers = null;
+    HsmKeyIdentifiers identifiers = null;
     try {
       identifiers = knetCommunicationService.createKeyPair("EdDSA", "Ed448", "test_sign2");
       final var data = MessageDigest.getInstance("SHA256").digest("test".getBytes());
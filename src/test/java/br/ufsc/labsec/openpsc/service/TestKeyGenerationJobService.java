@@ -0,0 +1,123 @@
+package br.ufsc.labsec.openpsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.service.KeyGenerationJobService.Status;
+import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException;
+import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException.ExceptionType;
+
+public class TestKeyGenerationJobService {
+
+  private KeyPairService keyPairService;
+  private KeyGenerationJobService keyGenerationJobService;
+
+  @BeforeEach
+  public void initialize() {
+    keyPairService = mock(KeyPairService.class);
+    keyGenerationJobService = new KeyGenerationJobService(keyPairService, 1, 1, 60, 100);
+  }
+
+  @AfterEach
+  public void shutdown() {
+    keyGenerationJobService.shutdown();
+  }
+
+  @Test
+  public void submit_success() throws Exception {
+    final var keyPair = new KeyPair();
+    when(keyPairService.createKeyPair("user", "accessKey", "RSA", "4096", "key"))
+        .thenReturn(keyPair);
+
+    final var job = keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "key");
+    job.getResult().get(10, TimeUnit.SECONDS);
+
+    assertEquals(Status.COMPLETED, job.getStatus());
+    assertSame(keyPair, job.getKeyPair());
+    assertNull(job.getError());
+    assertSame(job, keyGenerationJobService.getJob("user", job.getIdentifier()));
+  }
+
+  @Test
+  public void submit_failure() throws Exception {
+    final var exception = new KeyPairServiceException(ExceptionType.KEY_NAME_IN_USE);
+    when(keyPairService.createKeyPair(any(), any(), any(), any(), any())).thenThrow(exception);
+
+    final var job = keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "key");
+    assertThrows(ExecutionException.class, () -> job.getResult().get(10, TimeUnit.SECONDS));
+
+    assertEquals(Status.FAILED, job.getStatus());
+    assertNull(job.getKeyPair());
+    assertEquals(exception.getMessage(), job.getError());
+  }
+
+  @Test
+  public void submit_queueFull() throws Exception {
+    final var started = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    when(keyPairService.createKeyPair(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+      started.countDown();
+      release.await();
+      return new KeyPair();
+    });
+
+    final var running = keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "a");
+    started.await(10, TimeUnit.SECONDS);
+    final var queued = keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "b");
+
+    assertThrows(RejectedExecutionException.class,
+        () -> keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "c"));
+    assertEquals(Status.PENDING, running.getStatus());
+    assertEquals(Status.PENDING, queued.getStatus());
+    assertThrows(TimeoutException.class,
+        () -> queued.getResult().get(10, TimeUnit.MILLISECONDS));
+
+    release.countDown();
+    queued.getResult().get(10, TimeUnit.SECONDS);
+    assertEquals(Status.COMPLETED, running.getStatus());
+  }
+
+  @Test
+  public void getJob_otherUser() {
+    final var job = keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "key");
+
+    assertThrows(KeyPairServiceException.class,
+        () -> keyGenerationJobService.getJob("other", job.getIdentifier()));
+    assertThrows(KeyPairServiceException.class,
+        () -> keyGenerationJobService.getJob("user", "unknown"));
+  }
+
+  @Test
+  public void submit_evictsJobsOverMaximum() throws Exception {
+    keyGenerationJobService.shutdown();
+    keyGenerationJobService = new KeyGenerationJobService(keyPairService, 1, 1, 60, 1);
+    final var first = keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "first");
+    first.getResult().get(10, TimeUnit.SECONDS);
+    keyGenerationJobService.submit("user", "accessKey", "RSA", "4096", "second");
+    final Cache<?, ?> jobs =
+        (Cache<?, ?>) ReflectionTestUtils.getField(keyGenerationJobService, "jobs");
+    jobs.cleanUp();
+
+    assertEquals(1, jobs.estimatedSize());
+  }
+
+}
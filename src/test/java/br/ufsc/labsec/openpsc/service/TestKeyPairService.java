@@ -4,9 +4,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Signature;
 import java.security.SignatureException;
@@ -14,7 +18,9 @@ import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -94,6 +100,7 @@ public class TestKeyPairService {
     assertEquals(keyPair.getOwner().getUsername(), USER_USERNAME);
     assertNotNull(keyPair.getPrivateKey());
     assertNotNull(keyPair.getPublicKey());
+    assertNotNull(keyPair.getEncodedPublicKey());
     assertNotNull(keyPair.getUniqueIdentifier());
     assertNotNull(keyPair.getId());
   }
@@ -151,6 +158,109 @@ public class TestKeyPairService {
     assertTrue(signature.verify(Base64.getDecoder().decode(signedData)));
   }
 
+  @Test
+  public void signWithPublicKey_RSA_2048_SHA256() throws KeyPairServiceException,
+      InvalidKeyException, NoSuchAlgorithmException, SignatureException,
+      KNetCommunicationServiceException, KNetException, KeyManagerException {
+    final var algorithm = "RSA";
+    final var parameter = "2048";
+    final var hashingAlgorithm = "SHA256";
+    final var dataToSign = "test".getBytes();
+    final var base64EncodedDataToSign = Base64.getEncoder().encodeToString(dataToSign);
+    final var keyPair =
+        keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm, parameter, KEY_NAME);
+    final var publicKey =
+        kNetCommunicationService.getPublicKey(keyPair.getPublicKey(), algorithm, parameter);
+    final var signature = Signature.getInstance("SHA256WithRSA", new BouncyCastleProvider());
+    signature.initVerify(publicKey);
+    signature.update(dataToSign);
+
+    final var signatureResult = keyPairService.signWithPublicKey(USER_USERNAME, accessKey,
+        base64EncodedDataToSign, keyPair.getUniqueIdentifier(), hashingAlgorithm);
+
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair.getUniqueIdentifier());
+
+    assertEquals(keyPair.getUniqueIdentifier(), signatureResult.getKeyPairUniqueIdentifier());
+    assertEquals(keyPair.getEncodedPublicKey(), signatureResult.getBase64EncodedPublicKey());
+    assertTrue(signature
+        .verify(Base64.getDecoder().decode(signatureResult.getBase64EncodedSignature())));
+  }
+
+  @Test
+  public void signDigest_RSA_2048_SHA256() throws KeyPairServiceException, InvalidKeyException,
+      NoSuchAlgorithmException, SignatureException, KNetCommunicationServiceException,
+      KNetException, KeyManagerException {
+    final var algorithm = "RSA";
+    final var parameter = "2048";
+    final var dataToSign = "test".getBytes();
+    final var digest = MessageDigest.getInstance("SHA-256").digest(dataToSign);
+    final var keyPair =
+        keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm, parameter, KEY_NAME);
+    final var publicKey =
+        kNetCommunicationService.getPublicKey(keyPair.getPublicKey(), algorithm, parameter);
+    final var signature = Signature.getInstance("SHA256WithRSA", new BouncyCastleProvider());
+    signature.initVerify(publicKey);
+    signature.update(dataToSign);
+
+    final var signatureResult = keyPairService.signDigest(USER_USERNAME, accessKey,
+        Base64.getEncoder().encodeToString(digest), keyPair.getUniqueIdentifier(),
+        NISTObjectIdentifiers.id_sha256.getId());
+
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair.getUniqueIdentifier());
+
+    assertTrue(signature
+        .verify(Base64.getDecoder().decode(signatureResult.getBase64EncodedSignature())));
+  }
+
+  @Test
+  public void signDigest_lengthDoesntMatchAlgorithm() {
+    final var digest = Base64.getEncoder().encodeToString(new byte[20]);
+
+    assertThrows(KeyPairServiceException.class, () -> keyPairService.signDigest(USER_USERNAME,
+        accessKey, digest, "test", NISTObjectIdentifiers.id_sha256.getId()));
+  }
+
+  @Test
+  public void signDigest_sha3NotSupported() {
+    final var digest = Base64.getEncoder().encodeToString(new byte[32]);
+
+    final var exception = assertThrows(KeyPairServiceException.class,
+        () -> keyPairService.signDigest(USER_USERNAME, accessKey, digest, "test",
+            NISTObjectIdentifiers.id_sha3_256.getId()));
+    assertEquals("Digest algorithm OID not supported.", exception.getMessage());
+  }
+
+  @Test
+  public void signStream_RSA_2048_SHA256() throws KeyPairServiceException, InvalidKeyException,
+      NoSuchAlgorithmException, SignatureException, KNetCommunicationServiceException,
+      KNetException, KeyManagerException, IOException {
+    final var algorithm = "RSA";
+    final var parameter = "2048";
+    final var hashingAlgorithm = "SHA256";
+    final var dataToSign = "test".getBytes();
+    final var keyPair =
+        keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm, parameter, KEY_NAME);
+    final var publicKey =
+        kNetCommunicationService.getPublicKey(keyPair.getPublicKey(), algorithm, parameter);
+    final var signature = Signature.getInstance("SHA256WithRSA", new BouncyCastleProvider());
+    signature.initVerify(publicKey);
+    signature.update(dataToSign);
+
+    final var signatureResult = keyPairService.signStream(USER_USERNAME, accessKey,
+        new ByteArrayInputStream(dataToSign), keyPair.getUniqueIdentifier(), hashingAlgorithm);
+
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair.getUniqueIdentifier());
+
+    assertTrue(signature
+        .verify(Base64.getDecoder().decode(signatureResult.getBase64EncodedSignature())));
+  }
+
+  @Test
+  public void signStream_unsupportedHashingAlgorithm() {
+    assertThrows(KeyPairServiceException.class, () -> keyPairService.signStream(USER_USERNAME,
+        accessKey, new ByteArrayInputStream("test".getBytes()), "test", "test"));
+  }
+
   @Test
   public void sign_keyDoesntExist()
       throws KeyPairServiceException, InvalidKeyException, NoSuchAlgorithmException,
@@ -166,6 +276,43 @@ public class TestKeyPairService {
     });
   }
 
+  @Test
+  public void signBatch_RSA_2048_SHA256() throws KeyPairServiceException, InvalidKeyException,
+      NoSuchAlgorithmException, SignatureException, KNetCommunicationServiceException,
+      KNetException, KeyManagerException {
+    final var algorithm = "RSA";
+    final var parameter = "2048";
+    final var hashingAlgorithm = "SHA256";
+    final var dataToSign = "test".getBytes();
+    final var base64EncodedDataToSign = Base64.getEncoder().encodeToString(dataToSign);
+    final var keyPair =
+        keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm, parameter, KEY_NAME);
+    final var publicKey =
+        kNetCommunicationService.getPublicKey(keyPair.getPublicKey(), algorithm, parameter);
+
+    final var batchSignature = keyPairService.signBatch(USER_USERNAME, accessKey,
+        List.of(base64EncodedDataToSign, "not base64!"), keyPair.getUniqueIdentifier(),
+        hashingAlgorithm);
+
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair.getUniqueIdentifier());
+
+    final var signatures = batchSignature.getSignatures();
+    assertEquals(2, signatures.size());
+    final var signature = Signature.getInstance("SHA256WithRSA", new BouncyCastleProvider());
+    signature.initVerify(publicKey);
+    signature.update(dataToSign);
+    assertTrue(signature
+        .verify(Base64.getDecoder().decode(signatures.get(0).getBase64EncodedSignature())));
+    assertNotNull(signatures.get(1).getError());
+  }
+
+  @Test
+  public void signBatch_emptyBatch() {
+    assertThrows(KeyPairServiceException.class, () -> {
+      keyPairService.signBatch(USER_USERNAME, accessKey, List.of(), "test", "SHA256");
+    });
+  }
+
   @Test
   public void deleteKeyPair_RSA_2048()
       throws KeyPairServiceException, KNetCommunicationServiceException, KNetException {
@@ -209,6 +356,36 @@ public class TestKeyPairService {
     assertEquals(keyPair2.getId(), keyPairList.get(1).getId());
   }
 
+  @Test
+  public void getKeyPairPage()
+      throws KeyPairServiceException, KNetCommunicationServiceException, KNetException {
+    final var algorithm = "RSA";
+    final var parameter = "2048";
+    final var keyPair =
+        keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm, parameter, KEY_NAME);
+    final var keyPair2 = keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm,
+        parameter, KEY_NAME + "2");
+
+    final var firstPage = keyPairService.getKeyPairPage(USER_USERNAME, null, 1);
+    final var secondPage = keyPairService.getKeyPairPage(USER_USERNAME,
+        firstPage.getNextContinuationToken(), 1);
+
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair.getUniqueIdentifier());
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair2.getUniqueIdentifier());
+
+    assertEquals(1, firstPage.getKeyPairs().size());
+    assertEquals(keyPair.getId(), firstPage.getKeyPairs().get(0).getId());
+    assertEquals(1, secondPage.getKeyPairs().size());
+    assertEquals(keyPair2.getId(), secondPage.getKeyPairs().get(0).getId());
+    assertNull(secondPage.getNextContinuationToken());
+  }
+
+  @Test
+  public void getKeyPairPage_invalidContinuationToken() {
+    assertThrows(KeyPairServiceException.class,
+        () -> keyPairService.getKeyPairPage(USER_USERNAME, "invalid!", 1));
+  }
+
   @Test
   public void getKeyPair()
       throws KeyPairServiceException, KNetCommunicationServiceException, KNetException {
@@ -271,6 +448,22 @@ public class TestKeyPairService {
     assertFalse(publicKey.isBlank());
   }
 
+  @Test
+  public void getEncodedPublicKey() throws KeyPairServiceException,
+      KNetCommunicationServiceException, KeyManagerException, KNetException {
+    final var algorithm = "RSA";
+    final var parameter = "2048";
+    final var keyPair =
+        keyPairService.createKeyPair(USER_USERNAME, accessKey, algorithm, parameter, KEY_NAME);
+    final var publicKey = keyPairService.getPublicKey(keyPair.getPublicKey(), algorithm, parameter);
+
+    final var encodedPublicKey = keyPairService.getEncodedPublicKey(keyPair);
+
+    keyPairService.deleteKeyPair(USER_USERNAME, accessKey, keyPair.getUniqueIdentifier());
+
+    assertEquals(publicKey, encodedPublicKey);
+  }
+
   @Test
   public void getPublicKey_keyDoesntExist()
       throws KeyPairServiceException, KNetException, KNetCommunicationServiceException {
@@ -0,0 +1,263 @@
+package br.ufsc.labsec.openpsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.ufsc.labsec.openpsc.entity.AppUser;
+import br.ufsc.labsec.openpsc.entity.KeyPair;
+import br.ufsc.labsec.openpsc.repository.AppUserRepository;
+import br.ufsc.labsec.openpsc.repository.KeyPairRepository;
+import br.ufsc.labsec.openpsc.repository.projection.KeyPairSummary;
+import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException;
+import br.ufsc.labsec.openpsc.service.exception.KeyPairServiceException.ExceptionType;
+import br.ufsc.labsec.openpsc.service.hsm.HsmBackend;
+import br.ufsc.labsec.openpsc.service.hsm.HsmKeyIdentifiers;
+import br.ufsc.labsec.openpsc.service.hsm.HsmMetrics;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TestKeyPairServiceTransactions {
+
+  private static final String USERNAME = "test";
+  private static final String KEY_NAME = "test_key_name";
+
+  private KeyPairRepository keyPairRepository;
+  private PlatformTransactionManager transactionManager;
+  private HsmBackend hsmBackend;
+  private PregeneratedKeyPairPool pregeneratedKeyPairPool;
+  private KeyPairService keyPairService;
+  private String accessKey;
+
+  @BeforeEach
+  public void initialize() throws Exception {
+    keyPairRepository = mock(KeyPairRepository.class);
+    final var appUserRepository = mock(AppUserRepository.class);
+    when(appUserRepository.findAppUserByUsername(USERNAME)).thenReturn(Optional.of(new AppUser()));
+    transactionManager = mock(PlatformTransactionManager.class);
+    hsmBackend = mock(HsmBackend.class);
+    when(hsmBackend.createKeyPair(anyString(), anyString(), anyString()))
+        .thenReturn(new HsmKeyIdentifiers("private", "public"));
+
+    final var kNetCommunicationService = new KNetCommunicationService();
+    ReflectionTestUtils.setField(kNetCommunicationService, "hsmBackend", hsmBackend);
+    ReflectionTestUtils.setField(kNetCommunicationService, "hsmMetrics",
+        new HsmMetrics(new SimpleMeterRegistry()));
+    final var publicKeyCache = new PublicKeyCache();
+    publicKeyCache.put("public", KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic());
+    final var parameterEncryptor = new ParameterEncryptor();
+    accessKey = parameterEncryptor.encryptKey("password");
+    pregeneratedKeyPairPool = new PregeneratedKeyPairPool(kNetCommunicationService,
+        publicKeyCache, new SimpleMeterRegistry(), "EC:secp256r1=1", 1000);
+    keyPairService = new KeyPairService(keyPairRepository, appUserRepository,
+        kNetCommunicationService, parameterEncryptor, publicKeyCache, new SignatureVerifier(),
+        pregeneratedKeyPairPool, new TransactionTemplate(transactionManager));
+  }
+
+  @Test
+  public void createKeyPair_hsmCallOutsideTransaction() throws Exception {
+    doAnswer(invocation -> {
+      verify(transactionManager, never()).getTransaction(any());
+      return new HsmKeyIdentifiers("private", "public");
+    }).when(hsmBackend).createKeyPair(anyString(), anyString(), anyString());
+    when(keyPairRepository.save(any())).thenAnswer(invocation -> {
+      verify(transactionManager).getTransaction(any());
+      return invocation.getArgument(0);
+    });
+
+    keyPairService.createKeyPair(USERNAME, accessKey, "EC", "secp256r1", KEY_NAME);
+
+    verify(transactionManager).commit(any());
+  }
+
+  @Test
+  public void createKeyPair_saveFails_destroysKeyPair() throws Exception {
+    when(keyPairRepository.save(any(KeyPair.class)))
+        .thenThrow(new DataIntegrityViolationException("test"));
+
+    assertThrows(DataIntegrityViolationException.class, () -> keyPairService
+        .createKeyPair(USERNAME, accessKey, "EC", "secp256r1", KEY_NAME));
+
+    verify(hsmBackend).deleteKeyPair(eq("private"), eq("public"));
+    verify(transactionManager).rollback(any());
+  }
+
+  @Test
+  public void createKeyPair_saveFails_returnsPooledKeyPair() throws Exception {
+    when(hsmBackend.isConfigured()).thenReturn(true);
+    when(hsmBackend.getPublicKey("public", "EC", "secp256r1"))
+        .thenReturn(KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic());
+    pregeneratedKeyPairPool.fill();
+    when(keyPairRepository.save(any(KeyPair.class)))
+        .thenThrow(new DataIntegrityViolationException("test"));
+
+    assertThrows(DataIntegrityViolationException.class, () -> keyPairService
+        .createKeyPair(USERNAME, accessKey, "EC", "secp256r1", KEY_NAME));
+
+    assertEquals(1, pregeneratedKeyPairPool.getSize("EC", "secp256r1"));
+    verify(hsmBackend, never()).deleteKeyPair(anyString(), anyString());
+  }
+
+  @Test
+  public void createKeyPair_keyNameInUse_checkedBeforeHsm() throws Exception {
+    when(keyPairRepository.existsKeyPairByOwnerAndKeyName(any(), eq(KEY_NAME))).thenReturn(true);
+
+    final var exception = assertThrows(KeyPairServiceException.class, () -> keyPairService
+        .createKeyPair(USERNAME, accessKey, "EC", "secp256r1", KEY_NAME));
+
+    assertEquals(new KeyPairServiceException(ExceptionType.KEY_NAME_IN_USE).getMessage(),
+        exception.getMessage());
+    verify(hsmBackend, never()).createKeyPair(anyString(), anyString(), anyString());
+    verify(keyPairRepository, never()).save(any());
+  }
+
+  @Test
+  public void createKeyPair_keyNameInUse() throws Exception {
+    final var cause = new ConstraintViolationException("test", null,
+        "key_pair." + KeyPair.OWNER_KEY_NAME_CONSTRAINT.toUpperCase());
+    when(keyPairRepository.save(any(KeyPair.class)))
+        .thenThrow(new DataIntegrityViolationException("test", cause));
+
+    final var exception = assertThrows(KeyPairServiceException.class, () -> keyPairService
+        .createKeyPair(USERNAME, accessKey, "EC", "secp256r1", KEY_NAME));
+
+    assertEquals(new KeyPairServiceException(ExceptionType.KEY_NAME_IN_USE).getMessage(),
+        exception.getMessage());
+    verify(hsmBackend).deleteKeyPair(eq("private"), eq("public"));
+    verify(keyPairRepository, never()).findKeyPairByOwnerUsernameAndKeyName(any(), any());
+  }
+
+  @Test
+  public void deleteKeyPair_hsmCallOutsideTransaction() throws Exception {
+    final var encryptedPrivateKey = new ParameterEncryptor().encrypt("private", accessKey);
+    final var keyPair = new KeyPair("public", encryptedPrivateKey, "EC", "secp256r1", "unique",
+        KEY_NAME, new AppUser());
+    when(keyPairRepository.findKeyPairByOwnerUsernameAndUniqueIdentifier(USERNAME, "unique"))
+        .thenReturn(Optional.of(keyPair));
+    doAnswer(invocation -> {
+      verify(transactionManager, never()).getTransaction(any());
+      return null;
+    }).when(hsmBackend).deleteKeyPair(anyString(), anyString());
+
+    keyPairService.deleteKeyPair(USERNAME, accessKey, "unique");
+
+    verify(hsmBackend).deleteKeyPair("private", "public");
+    verify(keyPairRepository).deleteKeyPairByUniqueIdentifier("unique");
+    verify(transactionManager).commit(any());
+  }
+
+  @Test
+  public void exportKeyPairs_chunksInIdOrder() throws Exception {
+    final var firstChunk = new ArrayList<KeyPairSummary>();
+    firstChunk.add(new KeyPairSummary(1L, "unique1", "EC", "secp256r1", "key1", "public1", null));
+    for (var id = 2L; id <= KeyPairService.EXPORT_CHUNK_SIZE; id++)
+      firstChunk.add(new KeyPairSummary(id, "unique" + id, "EC", "secp256r1", "key" + id,
+          "public" + id, "encoded" + id));
+    final var lastId = (long) KeyPairService.EXPORT_CHUNK_SIZE;
+    final var secondChunk = List.of(new KeyPairSummary(lastId + 1, "unique", "EC", "secp256r1",
+        "last", "public", "encoded"));
+    when(keyPairRepository.findKeyPairSummaryByOwnerUsername(eq(USERNAME), eq(0L), any()))
+        .thenReturn(firstChunk);
+    when(keyPairRepository.findKeyPairSummaryByOwnerUsername(eq(USERNAME), eq(lastId), any()))
+        .thenReturn(secondChunk);
+    final var publicKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+    when(hsmBackend.getPublicKey("public1", "EC", "secp256r1")).thenReturn(publicKey);
+    final var exported = new ArrayList<String>();
+
+    keyPairService.exportKeyPairs(USERNAME,
+        (keyPair, encodedPublicKey) -> exported.add(keyPair.getKeyName() + "=" + encodedPublicKey));
+
+    assertEquals(KeyPairService.EXPORT_CHUNK_SIZE + 1, exported.size());
+    assertEquals("key1=" + Base64.getEncoder().encodeToString(publicKey.getEncoded()),
+        exported.get(0));
+    assertEquals("key2=encoded2", exported.get(1));
+    assertEquals("last=encoded", exported.get(KeyPairService.EXPORT_CHUNK_SIZE));
+    verify(keyPairRepository, times(2)).findKeyPairSummaryByOwnerUsername(eq(USERNAME),
+        anyLong(), eq(PageRequest.of(0, KeyPairService.EXPORT_CHUNK_SIZE)));
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+  @Test
+  public void backfillEncodedPublicKeys_batches() throws Exception {
+    final var firstBatch = new ArrayList<KeyPairSummary>();
+    for (var id = 1L; id <= KeyPairService.BACKFILL_BATCH_SIZE; id++)
+      firstBatch.add(new KeyPairSummary(id, "unique" + id, "EC", "secp256r1", "key" + id,
+          "public" + id, null));
+    final var lastId = (long) KeyPairService.BACKFILL_BATCH_SIZE;
+    when(keyPairRepository.findKeyPairSummaryByEncodedPublicKeyIsNull(eq(0L), any()))
+        .thenReturn(firstBatch);
+    when(keyPairRepository.findKeyPairSummaryByEncodedPublicKeyIsNull(eq(lastId), any()))
+        .thenReturn(List.of(new KeyPairSummary(lastId + 1, "unique", "EC", "secp256r1", "last",
+            "unreachable", null)));
+    final var publicKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+    doAnswer(invocation -> {
+      verify(transactionManager, never()).getTransaction(any());
+      return publicKey;
+    }).when(hsmBackend).getPublicKey(anyString(), eq("EC"), eq("secp256r1"));
+    when(hsmBackend.getPublicKey("unreachable", "EC", "secp256r1"))
+        .thenThrow(new KNetException("test", null));
+    doAnswer(invocation -> {
+      verify(transactionManager).getTransaction(any());
+      return 1;
+    }).when(keyPairRepository).updateEncodedPublicKey(anyLong(), anyString());
+
+    final var updated = keyPairService.backfillEncodedPublicKeys();
+
+    assertEquals(KeyPairService.BACKFILL_BATCH_SIZE, updated);
+    final var encodedPublicKey = Base64.getEncoder().encodeToString(publicKey.getEncoded());
+    verify(keyPairRepository, times(KeyPairService.BACKFILL_BATCH_SIZE))
+        .updateEncodedPublicKey(anyLong(), eq(encodedPublicKey));
+    verify(keyPairRepository, never()).updateEncodedPublicKey(eq(lastId + 1), anyString());
+    verify(transactionManager).commit(any());
+  }
+
+  @Test
+  public void verifySignature_doesntStorePublicKey() throws Exception {
+    final var generatedKeyPair = KeyPairGenerator.getInstance("EC").generateKeyPair();
+    final var keyPair = new KeyPair("other", "private", "EC", "secp256r1", "unique", KEY_NAME,
+        new AppUser());
+    when(keyPairRepository.findKeyPairByUniqueIdentifier("unique"))
+        .thenReturn(Optional.of(keyPair));
+    when(hsmBackend.getPublicKey("other", "EC", "secp256r1"))
+        .thenReturn(generatedKeyPair.getPublic());
+    final var data = "test".getBytes();
+    final var signature = Signature.getInstance("SHA256withECDSA");
+    signature.initSign(generatedKeyPair.getPrivate());
+    signature.update(data);
+    final var base64EncodedSignature = Base64.getEncoder().encodeToString(signature.sign());
+
+    final var valid = keyPairService.verifySignature("unique",
+        Base64.getEncoder().encodeToString(data), base64EncodedSignature, "SHA256withECDSA");
+
+    assertTrue(valid);
+    verify(keyPairRepository, never()).save(any());
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+}
@@ -2,6 +2,12 @@ package br.ufsc.labsec.openpsc.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,4 +45,41 @@ public class TestParameterEncryptor {
     assertEquals(valueToBeEncrypted, decryption);
   }
 
+  @Test
+  public void test_clearAccessKeyCache() {
+    parameterEncryptor.encrypt(valueToBeEncrypted, encryptedKey);
+    assertTrue(parameterEncryptor.getAccessKeyCacheSize() > 0);
+
+    parameterEncryptor.clearAccessKeyCache();
+
+    assertEquals(0, parameterEncryptor.getAccessKeyCacheSize());
+  }
+
+  @Test
+  public void test_encrypt_decrypt_concurrent() throws InterruptedException, ExecutionException {
+    final var threads = 16;
+    final var iterations = 500;
+    final var executor = Executors.newFixedThreadPool(threads);
+    try {
+      final var tasks = new ArrayList<Callable<Boolean>>();
+      for (var i = 0; i < threads; i++) {
+        final var threadIndex = i;
+        tasks.add(() -> {
+          final var accessKey = parameterEncryptor.encryptKey("password" + threadIndex);
+          for (var j = 0; j < iterations; j++) {
+            final var value = valueToBeEncrypted + threadIndex + "-" + j;
+            final var encryption = parameterEncryptor.encrypt(value, accessKey);
+            if (!value.equals(parameterEncryptor.decrypt(encryption, accessKey)))
+              return false;
+          }
+          return true;
+        });
+      }
+      for (final var result : executor.invokeAll(tasks))
+        assertTrue(result.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
 }
@@ -0,0 +1,191 @@
+package br.ufsc.labsec.openpsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.ufsc.labsec.openpsc.service.hsm.HsmMetrics;
+import br.ufsc.labsec.openpsc.service.hsm.SimulatedHsmBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TestPregeneratedKeyPairPool {
+
+  private SimulatedHsmBackend hsmBackend;
+  private KNetCommunicationService kNetCommunicationService;
+  private PublicKeyCache publicKeyCache;
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void initialize() {
+    hsmBackend = new SimulatedHsmBackend(0, 0, 0, 0);
+    kNetCommunicationService = new KNetCommunicationService();
+    ReflectionTestUtils.setField(kNetCommunicationService, "hsmBackend", hsmBackend);
+    ReflectionTestUtils.setField(kNetCommunicationService, "hsmMetrics",
+        new HsmMetrics(new SimpleMeterRegistry()));
+    publicKeyCache = new PublicKeyCache();
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  private PregeneratedKeyPairPool createPool(String sizes) {
+    return new PregeneratedKeyPairPool(kNetCommunicationService, publicKeyCache,
+        meterRegistry, sizes, 1000);
+  }
+
+  @Test
+  public void fill_success() {
+    hsmBackend.configure(Map.of());
+    final var pool = createPool("EC:secp256r1=3, EdDSA:Ed25519=2");
+
+    pool.fill();
+
+    assertEquals(3, pool.getSize("EC", "secp256r1"));
+    assertEquals(2, pool.getSize("EdDSA", "Ed25519"));
+    assertEquals(3, meterRegistry.get(PregeneratedKeyPairPool.POOL_SIZE_GAUGE)
+        .tag("algorithm", "EC").gauge().value());
+  }
+
+  @Test
+  public void fill_reclaimableHsmKeyName() throws Exception {
+    hsmBackend.configure(Map.of());
+    kNetCommunicationService = spy(kNetCommunicationService);
+    final var pool = createPool("EC:secp256r1=1");
+
+    pool.fill();
+
+    verify(kNetCommunicationService).createKeyPair(eq("EC"), eq("secp256r1"),
+        startsWith(PregeneratedKeyPairPool.HSM_KEY_NAME_PREFIX));
+  }
+
+  @Test
+  public void fill_hsmNotConfigured() {
+    final var pool = createPool("EC:secp256r1=3");
+
+    pool.fill();
+
+    assertEquals(0, pool.getSize("EC", "secp256r1"));
+  }
+
+  @Test
+  public void take_success() throws Exception {
+    hsmBackend.configure(Map.of());
+    final var pool = createPool("EC:secp256r1=2");
+    pool.fill();
+
+    final var pooledKeyPair = pool.take("EC", "secp256r1");
+
+    assertNotNull(pooledKeyPair);
+    assertEquals(1, pool.getSize("EC", "secp256r1"));
+    final var publicKeyIdentifier = pooledKeyPair.getIdentifiers().getPublicKeyIdentifier();
+    assertEquals(publicKeyCache.get(publicKeyIdentifier).getBase64Encoding(),
+        pooledKeyPair.getBase64EncodedPublicKey());
+    assertNotNull(hsmBackend.sign(pooledKeyPair.getIdentifiers().getPrivateKeyIdentifier(), "EC",
+        "secp256r1", new byte[32]));
+  }
+
+  @Test
+  public void take_notPooled() {
+    hsmBackend.configure(Map.of());
+    final var pool = createPool("EC:secp256r1=2");
+    pool.fill();
+
+    assertNull(pool.take("RSA", "2048"));
+  }
+
+  @Test
+  public void giveBack_success() {
+    hsmBackend.configure(Map.of());
+    final var pool = createPool("EC:secp256r1=1");
+    pool.fill();
+    final var pooledKeyPair = pool.take("EC", "secp256r1");
+
+    assertTrue(pool.giveBack("EC", "secp256r1", pooledKeyPair));
+
+    assertEquals(pooledKeyPair, pool.take("EC", "secp256r1"));
+  }
+
+  @Test
+  public void giveBack_afterReconfigure() throws Exception {
+    hsmBackend.configure(Map.of());
+    final var pool = createPool("EC:secp256r1=1");
+    pool.fill();
+    final var pooledKeyPair = pool.take("EC", "secp256r1");
+    pool.reconfigure(() -> {
+    });
+
+    assertFalse(pool.giveBack("EC", "secp256r1", pooledKeyPair));
+
+    assertEquals(0, pool.getSize("EC", "secp256r1"));
+  }
+
+  @Test
+  public void destroy_destroysUnassignedKeyPairs() throws Exception {
+    hsmBackend.configure(Map.of());
+    kNetCommunicationService = spy(kNetCommunicationService);
+    final var pool = createPool("EC:secp256r1=1");
+    pool.fill();
+    final var assigned = pool.take("EC", "secp256r1").getIdentifiers();
+    pool.fill();
+
+    pool.destroy();
+
+    assertEquals(0, pool.getSize("EC", "secp256r1"));
+    verify(kNetCommunicationService, times(1)).deleteKeyPair(any(), any(), eq("EC"),
+        eq("secp256r1"));
+    assertNotNull(
+        hsmBackend.sign(assigned.getPrivateKeyIdentifier(), "EC", "secp256r1", new byte[32]));
+  }
+
+  @Test
+  public void reconfigure_destroysUnassignedKeyPairs() throws Exception {
+    hsmBackend.configure(Map.of());
+    kNetCommunicationService = spy(kNetCommunicationService);
+    final var pool = createPool("EC:secp256r1=2");
+    pool.fill();
+    final var assigned = pool.take("EC", "secp256r1").getIdentifiers();
+
+    pool.reconfigure(() -> assertEquals(0, pool.getSize("EC", "secp256r1")));
+
+    verify(kNetCommunicationService, times(1)).deleteKeyPair(any(), any(), eq("EC"),
+        eq("secp256r1"));
+    verify(kNetCommunicationService, never()).deleteKeyPair(
+        eq(assigned.getPrivateKeyIdentifier()), any(), any(), any());
+    assertNotNull(
+        hsmBackend.sign(assigned.getPrivateKeyIdentifier(), "EC", "secp256r1", new byte[32]));
+  }
+
+  @Test
+  public void reconfigure_hsmNotConfigured() throws Exception {
+    hsmBackend.configure(Map.of());
+    final var pool = createPool("EC:secp256r1=1");
+    pool.fill();
+    hsmBackend.unload();
+
+    pool.reconfigure(() -> hsmBackend.configure(Map.of()));
+
+    assertEquals(0, pool.getSize("EC", "secp256r1"));
+    pool.fill();
+    assertEquals(1, pool.getSize("EC", "secp256r1"));
+  }
+
+  @Test
+  public void constructor_invalidSizes() {
+    assertThrows(IllegalArgumentException.class, () -> createPool("EC=3"));
+  }
+
+}
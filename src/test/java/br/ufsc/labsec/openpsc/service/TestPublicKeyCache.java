@@ -0,0 +1,100 @@
+package br.ufsc.labsec.openpsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.InvalidKeyException;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TestPublicKeyCache {
+
+  private static final String KEY_IDENTIFIER = "test";
+
+  private PublicKeyCache publicKeyCache;
+  private PublicKey publicKey;
+
+  @BeforeEach
+  public void initialize() throws NoSuchAlgorithmException {
+    publicKeyCache = new PublicKeyCache();
+    final var keyPairGenerator = KeyPairGenerator.getInstance("EC");
+    publicKey = keyPairGenerator.generateKeyPair().getPublic();
+  }
+
+  @Test
+  public void get_miss() {
+    final var cachedPublicKey = publicKeyCache.get(KEY_IDENTIFIER);
+
+    assertNull(cachedPublicKey);
+    assertEquals(0, publicKeyCache.getHitCount());
+    assertEquals(1, publicKeyCache.getMissCount());
+  }
+
+  @Test
+  public void get_hit() {
+    publicKeyCache.put(KEY_IDENTIFIER, publicKey);
+
+    final var cachedPublicKey = publicKeyCache.get(KEY_IDENTIFIER);
+
+    assertNotNull(cachedPublicKey);
+    assertEquals(publicKey, cachedPublicKey.getPublicKey());
+    assertEquals(Base64.getEncoder().encodeToString(publicKey.getEncoded()),
+        cachedPublicKey.getBase64Encoding());
+    assertEquals(1, publicKeyCache.getHitCount());
+    assertEquals(0, publicKeyCache.getMissCount());
+  }
+
+  @Test
+  public void get_metrics() {
+    final var meterRegistry = new SimpleMeterRegistry();
+    final var monitoredPublicKeyCache = new PublicKeyCache(meterRegistry);
+    monitoredPublicKeyCache.put(KEY_IDENTIFIER, publicKey);
+
+    monitoredPublicKeyCache.get(KEY_IDENTIFIER);
+    monitoredPublicKeyCache.get("missing");
+
+    assertEquals(1, meterRegistry.get("cache.gets").tag("cache", PublicKeyCache.CACHE_NAME)
+        .tag("result", "hit").functionCounter().count());
+    assertEquals(1, meterRegistry.get("cache.gets").tag("cache", PublicKeyCache.CACHE_NAME)
+        .tag("result", "miss").functionCounter().count());
+    assertEquals(1, meterRegistry.get("cache.size").tag("cache", PublicKeyCache.CACHE_NAME)
+        .gauge().value());
+  }
+
+  @Test
+  public void invalidate() {
+    publicKeyCache.put(KEY_IDENTIFIER, publicKey);
+
+    publicKeyCache.invalidate(KEY_IDENTIFIER);
+
+    assertNull(publicKeyCache.get(KEY_IDENTIFIER));
+  }
+
+  @Test
+  public void putEncoded() throws InvalidKeyException {
+    final var base64Encoding = Base64.getEncoder().encodeToString(publicKey.getEncoded());
+
+    final var cachedPublicKey = publicKeyCache.putEncoded(KEY_IDENTIFIER, base64Encoding);
+
+    assertArrayEquals(publicKey.getEncoded(), cachedPublicKey.getPublicKey().getEncoded());
+    assertEquals(base64Encoding, cachedPublicKey.getBase64Encoding());
+  }
+
+  @Test
+  public void putEncoded_invalidEncoding() {
+    assertThrows(InvalidKeyException.class, () -> {
+      publicKeyCache.putEncoded(KEY_IDENTIFIER, "test");
+    });
+  }
+
+}
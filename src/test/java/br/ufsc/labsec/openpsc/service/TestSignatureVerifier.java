@@ -0,0 +1,99 @@
+package br.ufsc.labsec.openpsc.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.Test;
+
+public class TestSignatureVerifier {
+
+  private static final byte[] DATA = "test".getBytes();
+
+  private final SignatureVerifier signatureVerifier = new SignatureVerifier();
+
+  private byte[] sign(KeyPair keyPair, String signatureAlgorithm) throws Exception {
+    final var signature = Signature.getInstance(signatureAlgorithm, new BouncyCastleProvider());
+    signature.initSign(keyPair.getPrivate());
+    signature.update(DATA);
+    return signature.sign();
+  }
+
+  private KeyPair generateKeyPair(String algorithm) throws NoSuchAlgorithmException {
+    return KeyPairGenerator.getInstance(algorithm, new BouncyCastleProvider()).generateKeyPair();
+  }
+
+  @Test
+  public void verify_RSA() throws Exception {
+    final var keyPair = generateKeyPair("RSA");
+    final var signature = sign(keyPair, "SHA256WithRSA");
+
+    assertTrue(signatureVerifier.verify(keyPair.getPublic(), "SHA256WithRSA", DATA, signature));
+  }
+
+  @Test
+  public void verify_EC() throws Exception {
+    final var keyPair = generateKeyPair("EC");
+    final var signature = sign(keyPair, "SHA256WithECDSA");
+
+    assertTrue(signatureVerifier.verify(keyPair.getPublic(), "SHA256WithECDSA", DATA, signature));
+  }
+
+  @Test
+  public void verify_Ed25519() throws Exception {
+    final var keyPair = generateKeyPair("Ed25519");
+    final var signature = sign(keyPair, "Ed25519");
+
+    assertTrue(signatureVerifier.verify(keyPair.getPublic(), "Ed25519", DATA, signature));
+  }
+
+  @Test
+  public void verify_wrongKey() throws Exception {
+    final var keyPair = generateKeyPair("RSA");
+    final var otherKeyPair = generateKeyPair("RSA");
+    final var signature = sign(keyPair, "SHA256WithRSA");
+
+    assertFalse(
+        signatureVerifier.verify(otherKeyPair.getPublic(), "SHA256WithRSA", DATA, signature));
+  }
+
+  @Test
+  public void verify_noSuchAlgorithm() throws Exception {
+    final var keyPair = generateKeyPair("RSA");
+
+    assertThrows(NoSuchAlgorithmException.class, () -> {
+      signatureVerifier.verify(keyPair.getPublic(), "DASPDAPJI", DATA, new byte[0]);
+    });
+  }
+
+  @Test
+  public void verify_concurrent() throws Exception {
+    final var keyPair = generateKeyPair("EC");
+    final var otherKeyPair = generateKeyPair("EC");
+    final var signature = sign(keyPair, "SHA256WithECDSA");
+    final var executor = Executors.newFixedThreadPool(8);
+    try {
+      final var tasks = new ArrayList<Callable<Boolean>>();
+      for (var i = 0; i < 200; i++) {
+        final var expected = i % 2 == 0;
+        final var publicKey = expected ? keyPair.getPublic() : otherKeyPair.getPublic();
+        tasks.add(() -> signatureVerifier.verify(publicKey, "SHA256WithECDSA", DATA,
+            signature) == expected);
+      }
+      for (final var result : executor.invokeAll(tasks))
+        assertTrue(result.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
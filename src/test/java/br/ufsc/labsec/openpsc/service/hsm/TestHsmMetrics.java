@@ -0,0 +1,79 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TestHsmMetrics {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final HsmMetrics hsmMetrics = new HsmMetrics(meterRegistry);
+
+  @Test
+  public void start_success() {
+    try (final var sample = hsmMetrics.start("sign", "RSA", "2048")) {
+      assertEquals(1, meterRegistry.get(HsmMetrics.OPERATIONS_IN_FLIGHT).tag("operation", "sign")
+          .gauge().value());
+      sample.success();
+    }
+
+    final var timer = meterRegistry.get(HsmMetrics.OPERATION_TIMER).tag("operation", "sign")
+        .tag("algorithm", "RSA").tag("parameter", "2048").tag("outcome", "success").timer();
+    assertEquals(1, timer.count());
+    assertEquals(0, meterRegistry.get(HsmMetrics.OPERATIONS_IN_FLIGHT).gauge().value());
+    assertNull(meterRegistry.find(HsmMetrics.OPERATION_ERRORS).counter());
+  }
+
+  @Test
+  public void start_error() {
+    try (final var sample = hsmMetrics.start("createKeyPair", "EC", "secp256r1")) {
+      // no success() call
+    }
+
+    assertEquals(1, meterRegistry.get(HsmMetrics.OPERATION_TIMER).tag("outcome", "error").timer()
+        .count());
+    assertEquals(1, meterRegistry.get(HsmMetrics.OPERATION_ERRORS)
+        .tag("operation", "createKeyPair").counter().count());
+  }
+
+  @Test
+  public void start_unknownAlgorithm() {
+    try (final var sample = hsmMetrics.start("deleteKeyPair", null, null)) {
+      sample.success();
+    }
+
+    assertEquals(1, meterRegistry.get(HsmMetrics.OPERATION_TIMER).tag("algorithm", "unknown")
+        .tag("parameter", "unknown").timer().count());
+  }
+
+  @Test
+  public void start_unboundedTagsAsOther() {
+    for (var i = 0; i < 100; i++)
+      try (final var sample = hsmMetrics.start("sign", "algorithm" + i, "parameter" + i)) {
+        sample.success();
+      }
+    try (final var sample = hsmMetrics.start("sign", "rsa", "123")) {
+      sample.success();
+    }
+
+    assertEquals(100, meterRegistry.get(HsmMetrics.OPERATION_TIMER).tag("algorithm", "other")
+        .tag("parameter", "other").timer().count());
+    assertEquals(1, meterRegistry.get(HsmMetrics.OPERATION_TIMER).tag("algorithm", "RSA")
+        .tag("parameter", "other").timer().count());
+    assertEquals(2, meterRegistry.find(HsmMetrics.OPERATIONS_IN_FLIGHT).gauges().size());
+  }
+
+  @Test
+  public void start_knownParameterIgnoringCase() {
+    try (final var sample = hsmMetrics.start("sign", "eddsa", "ed25519")) {
+      sample.success();
+    }
+
+    assertEquals(1, meterRegistry.get(HsmMetrics.OPERATION_TIMER).tag("algorithm", "EDDSA")
+        .tag("parameter", "Ed25519").timer().count());
+  }
+
+}
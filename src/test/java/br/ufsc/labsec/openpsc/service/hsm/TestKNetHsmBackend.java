@@ -0,0 +1,45 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import br.ufsc.labsec.valueobject.crypto.KNetRequester;
+
+public class TestKNetHsmBackend {
+
+  @Test
+  public void replacePool_closesPreviousPool() throws Exception {
+    final var closed = new ArrayList<KNetRequester>();
+    final var previousPool =
+        new KNetRequesterPool(() -> mock(KNetRequester.class), closed::add, 2, 1000);
+    previousPool.warmUp();
+    final var backend = new KNetHsmBackend();
+    backend.replacePool(previousPool);
+
+    backend.replacePool(new KNetRequesterPool(() -> mock(KNetRequester.class), 1, 1000));
+
+    assertEquals(1, closed.size());
+    assertEquals(0, previousPool.getIdleCount());
+  }
+
+  @Test
+  public void unload_closesPool() throws Exception {
+    final var closed = new ArrayList<KNetRequester>();
+    final var pool =
+        new KNetRequesterPool(() -> mock(KNetRequester.class), closed::add, 1, 1000);
+    pool.warmUp();
+    final var backend = new KNetHsmBackend();
+    backend.replacePool(pool);
+
+    backend.unload();
+
+    assertEquals(1, closed.size());
+    assertFalse(backend.isConfigured());
+  }
+
+}
@@ -0,0 +1,202 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.valueobject.crypto.KNetRequester;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+
+public class TestKNetRequesterPool {
+
+  @Test
+  public void execute_reusesRequester() throws Exception {
+    final var created = new AtomicInteger();
+    final var pool = new KNetRequesterPool(() -> {
+      created.incrementAndGet();
+      return mock(KNetRequester.class);
+    }, 2, 1000);
+
+    final var first = pool.execute(kNetRequester -> kNetRequester);
+    final var second = pool.execute(kNetRequester -> kNetRequester);
+
+    assertSame(first, second);
+    assertEquals(1, created.get());
+    assertEquals(2, pool.getAvailableCount());
+  }
+
+  @Test
+  public void execute_concurrent() throws InterruptedException, ExecutionException {
+    final var poolSize = 4;
+    final var created = new AtomicInteger();
+    final var pool = new KNetRequesterPool(() -> {
+      created.incrementAndGet();
+      return mock(KNetRequester.class);
+    }, poolSize, 1000);
+    final var inside = new CountDownLatch(poolSize);
+    final var executor = Executors.newFixedThreadPool(poolSize);
+    try {
+      final var tasks = new ArrayList<Callable<Boolean>>();
+      for (var i = 0; i < poolSize; i++)
+        tasks.add(() -> pool.execute(kNetRequester -> {
+          inside.countDown();
+          try {
+            return inside.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            return false;
+          }
+        }));
+      for (final var result : executor.invokeAll(tasks))
+        assertTrue(result.get());
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(poolSize, created.get());
+  }
+
+  @Test
+  public void execute_exhausted() throws Exception {
+    final var pool = new KNetRequesterPool(() -> mock(KNetRequester.class), 1, 50);
+    final var checkedOut = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    final var executor = Executors.newSingleThreadExecutor();
+    try {
+      final var holder = executor.submit(() -> pool.execute(kNetRequester -> {
+        checkedOut.countDown();
+        try {
+          return release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          return false;
+        }
+      }));
+      assertTrue(checkedOut.await(5, TimeUnit.SECONDS));
+
+      assertThrows(KNetCommunicationServiceException.class,
+          () -> pool.execute(kNetRequester -> kNetRequester));
+
+      release.countDown();
+      assertTrue(holder.get());
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, pool.getAvailableCount());
+  }
+
+  @Test
+  public void execute_discardsBrokenRequester() throws Exception {
+    final var created = new AtomicInteger();
+    final var pool = new KNetRequesterPool(() -> {
+      created.incrementAndGet();
+      return mock(KNetRequester.class);
+    }, 1, 1000);
+
+    assertThrows(IllegalStateException.class, () -> pool.execute(kNetRequester -> {
+      throw new IllegalStateException();
+    }));
+    pool.execute(kNetRequester -> kNetRequester);
+
+    assertEquals(2, created.get());
+    assertEquals(1, pool.getAvailableCount());
+  }
+
+  @Test
+  public void execute_keepsRequesterOnKNetException() throws Exception {
+    final var created = new AtomicInteger();
+    final var pool = new KNetRequesterPool(() -> {
+      created.incrementAndGet();
+      return mock(KNetRequester.class);
+    }, 1, 1000);
+
+    assertThrows(KNetException.class, () -> pool.execute(kNetRequester -> {
+      throw new KNetException("test", null);
+    }));
+    pool.execute(kNetRequester -> kNetRequester);
+
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void execute_discardsRequestersOnConnectionFailure() throws Exception {
+    final var created = new AtomicInteger();
+    final var pool = new KNetRequesterPool(() -> {
+      created.incrementAndGet();
+      return mock(KNetRequester.class);
+    }, 2, 1000);
+    pool.warmUp();
+    pool.warmUp();
+
+    assertThrows(KNetException.class, () -> pool.execute(kNetRequester -> {
+      throw new KNetException("test", new IOException("Connection reset"));
+    }));
+
+    assertEquals(0, pool.getIdleCount());
+    pool.execute(kNetRequester -> kNetRequester);
+    assertEquals(3, created.get());
+    assertEquals(2, pool.getAvailableCount());
+  }
+
+  @Test
+  public void execute_closesDiscardedRequesters() throws Exception {
+    final var closed = new ArrayList<KNetRequester>();
+    final var pool =
+        new KNetRequesterPool(() -> mock(KNetRequester.class), closed::add, 2, 1000);
+    pool.warmUp();
+    pool.warmUp();
+
+    final var failed = new ArrayList<KNetRequester>();
+    assertThrows(KNetException.class, () -> pool.execute(kNetRequester -> {
+      failed.add(kNetRequester);
+      throw new KNetException("test", new IOException("Connection reset"));
+    }));
+
+    assertEquals(2, closed.size());
+    assertTrue(closed.containsAll(failed));
+  }
+
+  @Test
+  public void close_closesIdleRequesters() throws Exception {
+    final var closed = new ArrayList<KNetRequester>();
+    final var pool =
+        new KNetRequesterPool(() -> mock(KNetRequester.class), closed::add, 2, 1000);
+    pool.warmUp();
+    pool.warmUp();
+
+    pool.close();
+
+    assertEquals(2, closed.size());
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void close_closesRequesterInUseOnRelease() throws Exception {
+    final var closed = new ArrayList<KNetRequester>();
+    final var pool =
+        new KNetRequesterPool(() -> mock(KNetRequester.class), closed::add, 1, 1000);
+
+    final var inUse = pool.execute(kNetRequester -> {
+      pool.close();
+      assertTrue(closed.isEmpty());
+      return kNetRequester;
+    });
+
+    assertEquals(List.of(inUse), closed);
+    assertEquals(0, pool.getIdleCount());
+    assertEquals(1, pool.getAvailableCount());
+  }
+
+}
@@ -0,0 +1,93 @@
+package br.ufsc.labsec.openpsc.service.hsm;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.MessageDigest;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import br.ufsc.labsec.openpsc.service.SignatureVerifier;
+import br.ufsc.labsec.openpsc.service.exception.KNetCommunicationServiceException;
+import br.ufsc.labsec.valueobject.exception.KNetException;
+
+public class TestSimulatedHsmBackend {
+
+  private static final byte[] DATA = "test".getBytes();
+
+  private final SignatureVerifier signatureVerifier = new SignatureVerifier();
+
+  private SimulatedHsmBackend createBackend(double errorRate) {
+    final var backend = new SimulatedHsmBackend(0, 0, 0, errorRate);
+    backend.configure(Map.of());
+    return backend;
+  }
+
+  private boolean signAndVerify(String keyAlgorithm, String keyParameter,
+      String signatureAlgorithm, byte[] toBeSigned) throws Exception {
+    final var backend = createBackend(0);
+    final var identifiers = backend.createKeyPair(keyAlgorithm, keyParameter, "test");
+    final var signature = backend.sign(identifiers.getPrivateKeyIdentifier(), keyAlgorithm,
+        keyParameter, toBeSigned);
+    final var publicKey = backend.getPublicKey(identifiers.getPublicKeyIdentifier(),
+        keyAlgorithm, keyParameter);
+    return signatureVerifier.verify(publicKey, signatureAlgorithm, DATA, signature);
+  }
+
+  private byte[] sha256() throws Exception {
+    return MessageDigest.getInstance("SHA-256").digest(DATA);
+  }
+
+  @Test
+  public void sign_RSA_2048() throws Exception {
+    assertTrue(signAndVerify("RSA", "2048", "SHA256withRSA", sha256()));
+  }
+
+  @Test
+  public void sign_EC_P256() throws Exception {
+    assertTrue(signAndVerify("EC", "secp256r1", "SHA256withECDSA", sha256()));
+  }
+
+  @Test
+  public void sign_Ed25519() throws Exception {
+    assertTrue(signAndVerify("EdDSA", "Ed25519", "Ed25519", DATA));
+  }
+
+  @Test
+  public void deleteKeyPair() throws Exception {
+    final var backend = createBackend(0);
+    final var identifiers = backend.createKeyPair("EdDSA", "Ed25519", "test");
+
+    backend.deleteKeyPair(identifiers.getPrivateKeyIdentifier(),
+        identifiers.getPublicKeyIdentifier());
+
+    assertThrows(KNetException.class, () -> backend.sign(identifiers.getPrivateKeyIdentifier(),
+        "EdDSA", "Ed25519", DATA));
+  }
+
+  @Test
+  public void createKeyPair_unsupported() {
+    final var backend = createBackend(0);
+
+    assertThrows(KNetException.class, () -> backend.createKeyPair("DSA", "1024", "test"));
+  }
+
+  @Test
+  public void sign_injectedError() throws Exception {
+    final var backend = createBackend(1);
+
+    assertThrows(KNetException.class, () -> backend.createKeyPair("EdDSA", "Ed25519", "test"));
+  }
+
+  @Test
+  public void sign_notConfigured() {
+    final var backend = new SimulatedHsmBackend(0, 0, 0, 0);
+
+    assertFalse(backend.isConfigured());
+    assertThrows(KNetCommunicationServiceException.class,
+        () -> backend.createKeyPair("EdDSA", "Ed25519", "test"));
+  }
+
+}